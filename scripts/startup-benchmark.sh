@@ -0,0 +1,115 @@
+#!/usr/bin/env bash
+# Compares cold start of the plain and fast-startup images against the same Postgres.
+# For every run it records the "Started ... in" time Spring reports, the wall time until
+# the first request is answered, and the latency of the first and second redirect (two
+# seeded links, so both are answered from the database rather than the cache).
+#
+#   scripts/startup-benchmark.sh [runs]
+#
+# Variants: plain (Dockerfile, default profile), plain-prod (Dockerfile, prod profile)
+# and fast (Dockerfile.fast: AOT + AppCDS, prod profile). Containers are pinned to the
+# same CPU and memory limits so results are comparable between runs.
+# Results go to target/startup-benchmark.csv.
+set -euo pipefail
+
+RUNS=${1:-5}
+CPUS=${CPUS:-2}
+MEMORY=${MEMORY:-1g}
+NETWORK=url-shortener-bench
+DB=url-shortener-bench-db
+APP=url-shortener-bench-app
+OUT=target/startup-benchmark.csv
+
+cd "$(dirname "$0")/.."
+mkdir -p target
+
+cleanup() {
+    docker rm -f "$APP" "$DB" >/dev/null 2>&1 || true
+    docker network rm "$NETWORK" >/dev/null 2>&1 || true
+}
+trap cleanup EXIT
+
+now_ms() {
+    date +%s%3N
+}
+
+docker build -q -t url-shortener:plain -f Dockerfile . >/dev/null
+docker build -q -t url-shortener:fast -f Dockerfile.fast . >/dev/null
+
+cleanup
+docker network create "$NETWORK" >/dev/null
+docker run -d --name "$DB" --network "$NETWORK" \
+    -e POSTGRES_USER=bench -e POSTGRES_PASSWORD=bench -e POSTGRES_DB=bench postgres:16 >/dev/null
+until docker exec "$DB" pg_isready -U bench -d bench >/dev/null 2>&1; do sleep 1; done
+
+# Starts the app and waits until it answers; prints start-to-first-response in ms.
+# Cache warm-up is off: the seeded links gain clicks every run and would otherwise
+# be preloaded, turning later runs' redirects into cache hits.
+start_app() {
+    local image=$1 profile=$2
+    local started
+    started=$(now_ms)
+    docker run -d --name "$APP" --network "$NETWORK" -p 8080:8080 \
+        --cpus "$CPUS" --memory "$MEMORY" \
+        -e SPRING_PROFILES_ACTIVE="$profile" \
+        -e DATABASE_URL="jdbc:postgresql://$DB:5432/bench" \
+        -e DATABASE_USERNAME=bench -e DATABASE_PASSWORD=bench \
+        -e DATABASE_DIALECT=org.hibernate.dialect.PostgreSQLDialect \
+        -e JWT_SECRET=AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA== \
+        -e MAIL_USERNAME=bench -e MAIL_PASSWORD=bench -e FRONTEND_URL=http://localhost \
+        -e SHORTCODE_SCRAMBLE_KEY=1 -e REDIRECT_WARMUP_ENABLED=false \
+        "$image" >/dev/null
+    until curl -sf -o /dev/null http://localhost:8080/; do
+        if ! docker ps -q -f name="$APP" | grep -q .; then
+            docker logs "$APP" >&2
+            echo "Container exited during startup" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    echo $(( $(now_ms) - started ))
+}
+
+# Requests a seeded code; prints its latency in seconds, or fails unless it redirected
+redirect_time() {
+    local status time
+    read -r status time < <(curl -s -o /dev/null -w '%{http_code} %{time_total}\n' "http://localhost:8080/$1")
+    if [ "$status" != 302 ]; then
+        echo "GET /$1 answered $status instead of 302" >&2
+        exit 1
+    fi
+    echo "$time"
+}
+
+# The prod profile expects the schema to exist: create it once with schema update
+start_app url-shortener:plain default >/dev/null
+docker rm -f "$APP" >/dev/null
+
+# Links for the redirect measurements; the Bloom filter picks them up on startup
+docker exec -i "$DB" psql -q -v ON_ERROR_STOP=1 -U bench -d bench >/dev/null <<'SQL'
+insert into users (username, email, password, role, security_version)
+values ('bench', 'bench@localhost', 'unused', 'ROLE_USER', 0);
+insert into url_mapping (id, original_url, short_url, click_count, created_date, user_id)
+select nextval('url_mapping_seq'), 'https://example.com/' || code, code, 0, now(), u.id
+from users u, (values ('bench01'), ('bench02')) as c(code)
+where u.username = 'bench';
+SQL
+
+echo "variant,run,spring_started_s,first_response_ms,first_redirect_ms,second_redirect_ms" > "$OUT"
+for variant in plain plain-prod fast; do
+    case $variant in
+        plain) image=url-shortener:plain profile=default ;;
+        plain-prod) image=url-shortener:plain profile=prod ;;
+        fast) image=url-shortener:fast profile=prod ;;
+    esac
+    for run in $(seq 1 "$RUNS"); do
+        first_response=$(start_app "$image" "$profile")
+        spring_started=$(docker logs "$APP" 2>&1 | sed -n 's/.*Started .* in \([0-9.]*\) seconds.*/\1/p' | head -1)
+        first_redirect=$(redirect_time bench01)
+        second_redirect=$(redirect_time bench02)
+        echo "$variant,$run,$spring_started,$first_response,$(awk "BEGIN{print $first_redirect*1000}"),$(awk "BEGIN{print $second_redirect*1000}")" >> "$OUT"
+        docker rm -f "$APP" >/dev/null
+    done
+done
+
+column -s, -t < "$OUT"
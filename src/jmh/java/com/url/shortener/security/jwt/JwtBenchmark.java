@@ -0,0 +1,62 @@
+package com.url.shortener.security.jwt;
+
+import com.url.shortener.service.UserDetailsImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Token issue and verification. verifyUncached is the full signature check every
+// request paid before verified tokens were cached; verifyCached is a cache hit.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtils jwtUtils;
+    private UserDetailsImpl userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", Base64.getEncoder().encodeToString(new byte[64]));
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", "172800000");
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", 10_000L);
+        jwtUtils.init();
+
+        userDetails = new UserDetailsImpl(42L, "benchmark-user", "benchmark@example.com", null, 0,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = jwtUtils.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtils.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public VerifiedJwt verifyUncached() {
+        return jwtUtils.parse(token);
+    }
+
+    @Benchmark
+    public String verifyCached() {
+        return jwtUtils.getUserNameFromJwtToken(token);
+    }
+}
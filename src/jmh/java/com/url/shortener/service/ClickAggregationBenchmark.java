@@ -0,0 +1,61 @@
+package com.url.shortener.service;
+
+import com.url.shortener.models.ClickEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// The in-memory groupingBy over loaded click events that the analytics endpoints used
+// before aggregation moved into the database. Kept as the baseline the SQL and rollup
+// paths are measured against; clicks are spread over a 30-day window.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClickAggregationBenchmark {
+
+    private static final int DAYS = 30;
+
+    @Param({"1000", "100000", "1000000"})
+    private int clicks;
+
+    private List<ClickEvent> clickEvents;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime start = LocalDate.now().minusDays(DAYS).atStartOfDay();
+        clickEvents = new ArrayList<>(clicks);
+        for (int i = 0; i < clicks; i++) {
+            ClickEvent clickEvent = new ClickEvent();
+            clickEvent.setId((long) i);
+            clickEvent.setClickDate(start.plusSeconds(random.nextLong(DAYS * 86_400L)));
+            clickEvents.add(clickEvent);
+        }
+    }
+
+    @Benchmark
+    public Map<LocalDate, Long> groupingByDay() {
+        return clickEvents.stream()
+                .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()));
+    }
+}
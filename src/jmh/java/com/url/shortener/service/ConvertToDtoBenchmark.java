@@ -0,0 +1,72 @@
+package com.url.shortener.service;
+
+import com.url.shortener.click.ClickCounterRegistry;
+import com.url.shortener.dtos.UrlMappingDto;
+import com.url.shortener.models.UrlMapping;
+import com.url.shortener.models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Mapping a page of entities to DTOs, including the pending click lookup.
+// Half of the mappings have unflushed clicks in the counter registry.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertToDtoBenchmark {
+
+    @Param({"20", "1000"})
+    private int mappings;
+
+    private ClickCounterRegistry clickCounters;
+    private List<UrlMapping> urlMappings;
+
+    @Setup
+    public void setUp() {
+//        The counter registry is only read and incremented here, so it needs no database
+        clickCounters = new ClickCounterRegistry(null, null);
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("benchmark-user");
+        urlMappings = new ArrayList<>(mappings);
+        for (long id = 1; id <= mappings; id++) {
+            UrlMapping urlMapping = new UrlMapping();
+            urlMapping.setId(id);
+            urlMapping.setOriginalUrl("https://example.com/articles/" + id + "?utm_source=benchmark");
+            urlMapping.setShortUrl("abc" + id);
+            urlMapping.setClickCount((int) (id * 7));
+            urlMapping.setCreatedDate(LocalDateTime.now().minusMinutes(id));
+            urlMapping.setUser(user);
+            urlMappings.add(urlMapping);
+            if (id % 2 == 0) {
+                clickCounters.increment(id);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<UrlMappingDto> convertPage() {
+        List<UrlMappingDto> dtos = new ArrayList<>(urlMappings.size());
+        for (UrlMapping urlMapping : urlMappings) {
+            dtos.add(UrlMappingService.toDto(urlMapping, clickCounters.pendingClicks(urlMapping.getId())));
+        }
+        return dtos;
+    }
+}
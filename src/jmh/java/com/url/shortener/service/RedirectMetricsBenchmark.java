@@ -0,0 +1,79 @@
+package com.url.shortener.service;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Cost the redirect timers add to every request: "noop" is a registry with no backend,
+// so it measures just the nanoTime calls; "prometheus" records into histograms configured
+// like application.properties. Run with several threads, as requests contend on the
+// same timers.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RedirectMetricsBenchmark {
+
+    @Param({"noop", "prometheus"})
+    public String registry;
+
+    private RedirectMetrics redirectMetrics;
+
+    @Setup
+    public void setUp() {
+        MeterRegistry meterRegistry;
+        if (registry.equals("prometheus")) {
+            meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            meterRegistry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder()
+                            .percentilesHistogram(true)
+                            .minimumExpectedValue((double) Duration.ofNanos(1_000).toNanos())
+                            .maximumExpectedValue((double) Duration.ofSeconds(1).toNanos())
+                            .build()
+                            .merge(config);
+                }
+            });
+        } else {
+            meterRegistry = new CompositeMeterRegistry();
+        }
+        redirectMetrics = new RedirectMetrics(meterRegistry);
+    }
+
+    @Benchmark
+    public void baseline() {
+        System.nanoTime();
+        System.nanoTime();
+    }
+
+    @Benchmark
+    public void lookupAndClick() {
+        long start = System.nanoTime();
+        redirectMetrics.recordLookup(start, true);
+        long recordStart = System.nanoTime();
+        redirectMetrics.recordClick(recordStart);
+    }
+}
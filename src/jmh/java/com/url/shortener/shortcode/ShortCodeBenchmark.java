@@ -0,0 +1,44 @@
+package com.url.shortener.shortcode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of producing one short code. sequenceScrambled is the in-memory part of
+// SequenceShortCodeGenerator.nextCode (a block lease happens once per block-size ids).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShortCodeBenchmark {
+
+    private final RandomShortCodeGenerator randomGenerator = new RandomShortCodeGenerator();
+    private final FeistelScrambler scrambler = new FeistelScrambler(7340032841L);
+    private long nextId = 1;
+
+    @Benchmark
+    public String random() {
+        return randomGenerator.nextCode();
+    }
+
+    @Benchmark
+    public String sequencePlain() {
+        return Base62.encode(nextId++);
+    }
+
+    @Benchmark
+    public String sequenceScrambled() {
+        long id = nextId++ % FeistelScrambler.DOMAIN;
+        return Base62.encode(scrambler.scramble(id), FeistelScrambler.CODE_LENGTH);
+    }
+}
@@ -0,0 +1,134 @@
+package com.url.shortener.archive;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Cold tier for raw clicks: the segment files under analytics.archive.directory,
+// one or more per archived day, all memory mapped. Once a day has a segment its
+// clicks are read only from here, so rows the archiver has not deleted yet are
+// never counted twice. Lookups are by the ids of existing links, so clicks of a purged
+// link are never read; ClickArchiver removes them from the files when it compacts.
+@Slf4j
+@Component
+public class ClickArchive {
+
+    static final String SUFFIX = ".seg";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final ConcurrentSkipListMap<LocalDate, List<ClickSegment>> segments = new ConcurrentSkipListMap<>();
+
+    public ClickArchive(@Value("${analytics.archive.enabled}") boolean enabled,
+                        @Value("${analytics.archive.directory}") String directory) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(ClickArchiver.TEMP_SUFFIX)) {
+//                    Left over from an archive run that did not finish
+                    Files.delete(file);
+                } else if (name.endsWith(SUFFIX)) {
+                    try {
+                        publish(ClickSegment.open(file));
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Skipping unreadable click segment {}: {}", file, e.getMessage());
+                    }
+                }
+            }
+        }
+        log.info("Loaded {} archived click days from {}", segments.size(), directory);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    void publish(ClickSegment segment) {
+        segments.computeIfAbsent(segment.day(), day -> new CopyOnWriteArrayList<>()).add(segment);
+    }
+
+    // Every loaded segment, oldest day first
+    List<ClickSegment> segments() {
+        return segments.values().stream().flatMap(List::stream).toList();
+    }
+
+    // Swaps in a rewritten segment, or drops the old one when replacement is null. Readers
+    // still holding the old mapping keep a valid view of the replaced or deleted file.
+    void replace(ClickSegment old, ClickSegment replacement) {
+        segments.computeIfPresent(old.day(), (day, list) -> {
+            list.remove(old);
+            if (replacement != null) {
+                list.add(replacement);
+            }
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    // Highest click_event id already archived for the day, or 0
+    long maxEventId(LocalDate day) {
+        return segments.getOrDefault(day, List.of()).stream().mapToLong(ClickSegment::maxEventId).max().orElse(0);
+    }
+
+    // First day whose clicks are still read from click_event
+    public Optional<LocalDate> hotFrom() {
+        return segments.isEmpty() ? Optional.empty() : Optional.of(segments.lastKey().plusDays(1));
+    }
+
+    // Archived clicks per day for the links in [start, end]
+    public Map<LocalDate, Long> countDaily(Collection<Long> urlMappingIds, LocalDateTime start, LocalDateTime end) {
+        Map<LocalDate, Long> counts = new TreeMap<>();
+        if (segments.isEmpty() || end.isBefore(start)) {
+            return counts;
+        }
+        for (Map.Entry<LocalDate, List<ClickSegment>> entry : segments.subMap(start.toLocalDate(), true, end.toLocalDate(), true).entrySet()) {
+            LocalDateTime dayStart = entry.getKey().atStartOfDay();
+            long from = Math.max(0, Duration.between(dayStart, start).toMillis());
+//            end is inclusive, segments count up to an exclusive bound
+            long to = Duration.between(dayStart, end).toMillis() + 1;
+            long total = 0;
+            for (ClickSegment segment : entry.getValue()) {
+                for (Long urlMappingId : urlMappingIds) {
+                    total += segment.count(urlMappingId, from, to);
+                }
+            }
+            if (total > 0) {
+                counts.put(entry.getKey(), total);
+            }
+        }
+        return counts;
+    }
+
+    static Path segmentPath(Path directory, LocalDate day, long maxEventId) {
+        return directory.resolve("clicks-" + day + "-" + maxEventId + SUFFIX);
+    }
+}
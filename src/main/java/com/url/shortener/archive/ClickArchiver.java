@@ -0,0 +1,270 @@
+package com.url.shortener.archive;
+
+import com.url.shortener.click.ClickRollupReconciler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Array;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Moves raw clicks older than retention-days out of click_event into segment files,
+// one day at a time, oldest first:
+//   1. recompute the day's rollups, which stay in the database and keep serving
+//      the default (rollup based) analytics
+//   2. stream the day's rows ordered by link into a temp file, fsync it and rename it
+//      into place, then publish it to ClickArchive
+//   3. delete the archived rows in chunks, each in its own short transaction
+// The segment records the highest click_event id it holds, so a run that stopped
+// between 2 and 3 just finishes the delete next time instead of archiving twice.
+// On compact-cron, segments are kept in step with deletions:
+//   - a segment holding links that are gone from url_mapping (purged by DeletionWorker;
+//     ids are never reused) is rewritten without them, or deleted if nothing is left
+//   - with expiry-days above 0, segments of days older than that are deleted outright
+// Segments live on local disk: enable this on one node, or give all nodes the same volume.
+@Slf4j
+@Component
+public class ClickArchiver {
+
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private static final String SELECT_DAY =
+            "select id, url_mapping_id, click_date from click_event " +
+            "where click_date >= ? and click_date < ? and id > ? " +
+            "order by url_mapping_id, click_date";
+
+    private static final String DELETE_ARCHIVED =
+            "delete from click_event where id in (select id from click_event " +
+            "where click_date >= ? and click_date < ? and id <= ? limit ?)";
+
+    private static final int LIVE_CHECK_CHUNK = 10_000;
+
+    private final ClickArchive archive;
+    private final ClickRollupReconciler rollupReconciler;
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final int deleteChunkSize;
+    private final int expiryDays;
+    private final Counter archived;
+    private final Counter purgedLinks;
+    private final Counter expiredSegments;
+    // Archiving and compacting both rewrite the directory; one at a time
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    public ClickArchiver(ClickArchive archive,
+                         ClickRollupReconciler rollupReconciler,
+                         JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${analytics.archive.retention-days}") int retentionDays,
+                         @Value("${analytics.archive.fetch-size}") int fetchSize,
+                         @Value("${analytics.archive.delete-chunk-size}") int deleteChunkSize,
+                         @Value("${analytics.archive.expiry-days}") int expiryDays) {
+        this.archive = archive;
+        this.rollupReconciler = rollupReconciler;
+        this.jdbcTemplate = jdbcTemplate;
+//        A fetch size makes the driver use a cursor instead of loading the whole day
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.retentionDays = retentionDays;
+        this.deleteChunkSize = deleteChunkSize;
+        this.expiryDays = expiryDays;
+        this.archived = Counter.builder("clicks.archived").register(meterRegistry);
+        this.purgedLinks = Counter.builder("clicks.archive.purged.links").register(meterRegistry);
+        this.expiredSegments = Counter.builder("clicks.archive.expired.segments").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${analytics.archive.cron}")
+    public void archiveOldClicks() {
+        if (!archive.isEnabled()) {
+            return;
+        }
+        LocalDate boundary = LocalDate.now().minusDays(retentionDays);
+        LocalDateTime oldest = jdbcTemplate.queryForObject(
+                "select min(click_date) from click_event where click_date < ?", LocalDateTime.class, boundary.atStartOfDay());
+        if (oldest == null) {
+            return;
+        }
+        runLock.lock();
+        try {
+            for (LocalDate day = oldest.toLocalDate(); day.isBefore(boundary); day = day.plusDays(1)) {
+                try {
+                    archiveDay(day);
+                } catch (IOException | RuntimeException e) {
+//                    Later days must not be archived ahead of this one, see ClickArchive.hotFrom
+                    log.warn("Failed to archive clicks of {}, will retry on the next run", day, e);
+                    return;
+                }
+            }
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    @Scheduled(cron = "${analytics.archive.compact-cron}")
+    public void compactSegments() {
+        if (!archive.isEnabled()) {
+            return;
+        }
+        LocalDate expiredBefore = expiryDays > 0 ? LocalDate.now().minusDays(expiryDays) : null;
+        runLock.lock();
+        try {
+            for (ClickSegment segment : archive.segments()) {
+                try {
+                    if (expiredBefore != null && segment.day().isBefore(expiredBefore)) {
+                        drop(segment);
+                        expiredSegments.increment();
+                        log.info("Deleted expired click segment {}", segment.path().getFileName());
+                    } else {
+                        compact(segment);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to compact click segment {}, will retry on the next run", segment.path(), e);
+                }
+            }
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    void compact(ClickSegment segment) throws IOException {
+        long[] urlMappingIds = segment.urlMappingIds();
+        Set<Long> live = liveIds(urlMappingIds);
+        if (live.size() == urlMappingIds.length) {
+            return;
+        }
+
+        Path temp = segment.path().resolveSibling(segment.path().getFileName() + TEMP_SUFFIX);
+        Files.deleteIfExists(temp);
+        long clicks;
+        try (ClickSegmentWriter writer = new ClickSegmentWriter(temp, segment.day())) {
+            for (long urlMappingId : urlMappingIds) {
+                if (live.contains(urlMappingId)) {
+                    for (long millis : segment.clickTimes(urlMappingId)) {
+                        writer.add(urlMappingId, millis);
+                    }
+                }
+            }
+            clicks = writer.clicks();
+            if (clicks > 0) {
+                writer.finish(segment.maxEventId());
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        int purged = urlMappingIds.length - live.size();
+        purgedLinks.increment(purged);
+        if (clicks == 0) {
+            Files.deleteIfExists(temp);
+            drop(segment);
+            log.info("Deleted click segment {}, all of its {} links were purged", segment.path().getFileName(), purged);
+            return;
+        }
+//        rename(2) replaces the old file; readers keep their mapping of it
+        Files.move(temp, segment.path(), StandardCopyOption.ATOMIC_MOVE);
+        archive.replace(segment, ClickSegment.open(segment.path()));
+        log.info("Removed {} purged links ({} clicks) from click segment {}",
+                purged, segment.clicks() - clicks, segment.path().getFileName());
+    }
+
+    private void drop(ClickSegment segment) throws IOException {
+        archive.replace(segment, null);
+        Files.deleteIfExists(segment.path());
+    }
+
+    // The ids that still have a url_mapping row, tombstoned ones included
+    private Set<Long> liveIds(long[] urlMappingIds) {
+        Set<Long> live = new HashSet<>();
+        for (int from = 0; from < urlMappingIds.length; from += LIVE_CHECK_CHUNK) {
+            Long[] chunk = Arrays.stream(urlMappingIds, from, Math.min(urlMappingIds.length, from + LIVE_CHECK_CHUNK))
+                    .boxed().toArray(Long[]::new);
+            live.addAll(jdbcTemplate.query("select id from url_mapping where id = any(?)",
+                    ps -> {
+                        Array array = ps.getConnection().createArrayOf("bigint", chunk);
+                        ps.setArray(1, array);
+                    },
+                    (rs, rowNum) -> rs.getLong(1)));
+        }
+        return live;
+    }
+
+    void archiveDay(LocalDate day) throws IOException {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        long alreadyArchived = archive.maxEventId(day);
+        if (alreadyArchived > 0) {
+//            Rollups were recomputed before the first segment; the remaining rows are a subset
+            deleteArchived(from, to, alreadyArchived);
+        } else {
+            rollupReconciler.recompute(day, day.plusDays(1));
+        }
+
+        Path temp = archive.directory().resolve("clicks-" + day + TEMP_SUFFIX);
+        Files.deleteIfExists(temp);
+        AtomicLong maxEventId = new AtomicLong(alreadyArchived);
+        long clicks;
+        try (ClickSegmentWriter writer = new ClickSegmentWriter(temp, day)) {
+            transactionTemplate.executeWithoutResult(status -> streamingJdbcTemplate.query(SELECT_DAY, rs -> {
+                try {
+                    maxEventId.accumulateAndGet(rs.getLong(1), Math::max);
+                    LocalDateTime clickDate = rs.getTimestamp(3).toLocalDateTime();
+                    writer.add(rs.getLong(2), clickDate.toLocalTime().toNanoOfDay() / 1_000_000);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, from, to, alreadyArchived));
+            clicks = writer.clicks();
+            if (clicks > 0) {
+                writer.finish(maxEventId.get());
+            }
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        }
+        if (clicks == 0) {
+            Files.deleteIfExists(temp);
+            return;
+        }
+
+        Path target = ClickArchive.segmentPath(archive.directory(), day, maxEventId.get());
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        archive.publish(ClickSegment.open(target));
+        long deleted = deleteArchived(from, to, maxEventId.get());
+        archived.increment(clicks);
+        log.info("Archived {} clicks of {} to {} and removed {} rows", clicks, day, target.getFileName(), deleted);
+    }
+
+    private long deleteArchived(LocalDateTime from, LocalDateTime to, long maxEventId) {
+        long deleted = 0;
+        while (true) {
+            int rows = jdbcTemplate.update(DELETE_ARCHIVED, from, to, maxEventId, deleteChunkSize);
+            deleted += rows;
+            if (rows < deleteChunkSize) {
+                return deleted;
+            }
+        }
+    }
+}
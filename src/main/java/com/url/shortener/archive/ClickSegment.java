@@ -0,0 +1,161 @@
+package com.url.shortener.archive;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Read-only view of a segment written by ClickSegmentWriter. The whole file is memory
+// mapped, so lookups go through the page cache without copying: the index is binary
+// searched in place and only the block of the requested link is inflated. Counting a
+// whole day needs no decompression at all, since the index stores the click count.
+final class ClickSegment {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final LocalDate day;
+    private final long indexOffset;
+    private final int links;
+    private final long maxEventId;
+    private final long clicks;
+
+    private ClickSegment(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        int size = buffer.capacity();
+        if (size < ClickSegmentWriter.HEADER_BYTES + ClickSegmentWriter.FOOTER_BYTES
+                || buffer.getInt(0) != ClickSegmentWriter.MAGIC
+                || buffer.getInt(size - 4) != ClickSegmentWriter.MAGIC) {
+            throw new IllegalArgumentException("Not a complete click segment: " + path);
+        }
+        if (buffer.getShort(4) != ClickSegmentWriter.VERSION) {
+            throw new IllegalArgumentException("Unsupported click segment version in " + path);
+        }
+        this.day = LocalDate.ofEpochDay(buffer.getLong(6));
+        int footer = size - ClickSegmentWriter.FOOTER_BYTES;
+        this.indexOffset = buffer.getLong(footer);
+        this.links = buffer.getInt(footer + 8);
+        this.maxEventId = buffer.getLong(footer + 12);
+        this.clicks = buffer.getLong(footer + 20);
+    }
+
+    static ClickSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Click segment larger than 2 GB: " + path);
+            }
+//            The mapping stays valid after the channel is closed
+            return new ClickSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    LocalDate day() {
+        return day;
+    }
+
+    long maxEventId() {
+        return maxEventId;
+    }
+
+    long clicks() {
+        return clicks;
+    }
+
+    // Clicks of the link between fromMillis (inclusive) and toMillis (exclusive) of this day
+    long count(long urlMappingId, long fromMillis, long toMillis) {
+        int entry = find(urlMappingId);
+        if (entry < 0 || fromMillis >= toMillis) {
+            return 0;
+        }
+        int entryCount = buffer.getInt(entry + 24);
+        if (fromMillis <= 0 && toMillis >= MILLIS_PER_DAY) {
+            return entryCount;
+        }
+        long count = 0;
+        for (long millis : decode(entry)) {
+            if (millis >= toMillis) {
+                break;
+            }
+            if (millis >= fromMillis) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The links with clicks in this segment, in ascending order
+    long[] urlMappingIds() {
+        long[] ids = new long[links];
+        for (int i = 0; i < links; i++) {
+            ids[i] = buffer.getLong((int) (indexOffset + (long) i * ClickSegmentWriter.INDEX_ENTRY_BYTES));
+        }
+        return ids;
+    }
+
+    // Millis of day of every click of the link, in order
+    long[] clickTimes(long urlMappingId) {
+        int entry = find(urlMappingId);
+        return entry < 0 ? new long[0] : decode(entry);
+    }
+
+    private long[] decode(int entry) {
+        long offset = buffer.getLong(entry + 8);
+        int compressedLength = buffer.getInt(entry + 16);
+        byte[] raw = new byte[buffer.getInt(entry + 20)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice((int) offset, compressedLength));
+            inflater.inflate(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt click segment " + path, e);
+        } finally {
+            inflater.end();
+        }
+
+        long[] times = new long[buffer.getInt(entry + 24)];
+        long millis = 0;
+        int position = 0;
+        for (int i = 0; i < times.length; i++) {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = raw[position++];
+                delta |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            millis += delta;
+            times[i] = millis;
+        }
+        return times;
+    }
+
+    // Absolute position of the index entry for the link, or -1
+    private int find(long urlMappingId) {
+        int low = 0;
+        int high = links - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = (int) (indexOffset + (long) mid * ClickSegmentWriter.INDEX_ENTRY_BYTES);
+            long id = buffer.getLong(entry);
+            if (id < urlMappingId) {
+                low = mid + 1;
+            } else if (id > urlMappingId) {
+                high = mid - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,138 @@
+package com.url.shortener.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+// Writes one segment: the clicks of a single day, grouped by link. Clicks must be
+// added ordered by (urlMappingId, time). Layout, all big-endian:
+//   header  magic:int version:short epochDay:long
+//   blocks  per link, deflate-compressed varints: millis of day of the first click,
+//           then the gap to each following click
+//   index   per link, sorted by id: urlMappingId:long offset:long compressedLength:int
+//           rawLength:int clicks:int
+//   footer  indexOffset:long links:int maxEventId:long clicks:long magic:int
+final class ClickSegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x434C4B53;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 4 + 2 + 8;
+    static final int INDEX_ENTRY_BYTES = 8 + 8 + 4 + 4 + 4;
+    static final int FOOTER_BYTES = 8 + 4 + 8 + 8 + 4;
+
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final DataOutputStream index;
+    private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+
+    private long position;
+    private int links;
+    private long clicks;
+
+    private long currentLink = -1;
+    private long lastMillis;
+    private int currentClicks;
+    private byte[] raw = new byte[256];
+    private int rawLength;
+    private byte[] compressed = new byte[256];
+
+    ClickSegmentWriter(Path path, LocalDate day) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        OutputStream stream = Channels.newOutputStream(channel);
+        this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        this.index = new DataOutputStream(indexBytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(day.toEpochDay());
+        position = HEADER_BYTES;
+    }
+
+    void add(long urlMappingId, long millisOfDay) throws IOException {
+        if (urlMappingId != currentLink) {
+            if (urlMappingId < currentLink) {
+                throw new IllegalArgumentException("Clicks must be added in url_mapping_id order");
+            }
+            flushBlock();
+            currentLink = urlMappingId;
+            lastMillis = 0;
+        }
+        writeVarLong(millisOfDay - lastMillis);
+        lastMillis = millisOfDay;
+        currentClicks++;
+    }
+
+    // Writes the index and footer and forces everything to disk
+    void finish(long maxEventId) throws IOException {
+        flushBlock();
+        long indexOffset = position;
+        indexBytes.writeTo(out);
+        out.writeLong(indexOffset);
+        out.writeInt(links);
+        out.writeLong(maxEventId);
+        out.writeLong(clicks);
+        out.writeInt(MAGIC);
+        out.flush();
+        channel.force(true);
+    }
+
+    long clicks() {
+        return clicks + currentClicks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+
+    private void flushBlock() throws IOException {
+        if (currentClicks == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        out.write(compressed, 0, compressedLength);
+
+        index.writeLong(currentLink);
+        index.writeLong(position);
+        index.writeInt(compressedLength);
+        index.writeInt(rawLength);
+        index.writeInt(currentClicks);
+
+        position += compressedLength;
+        links++;
+        clicks += currentClicks;
+        currentClicks = 0;
+        rawLength = 0;
+    }
+
+    private void writeVarLong(long value) {
+        if (raw.length - rawLength < 10) {
+            raw = Arrays.copyOf(raw, raw.length * 2);
+        }
+        while ((value & ~0x7FL) != 0) {
+            raw[rawLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        raw[rawLength++] = (byte) value;
+    }
+}
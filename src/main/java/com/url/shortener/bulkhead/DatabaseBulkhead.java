@@ -0,0 +1,67 @@
+package com.url.shortener.bulkhead;
+
+import com.url.shortener.exceptions.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Caps concurrent repository calls at roughly the connection pool size. With virtual
+// threads request concurrency is no longer bounded by Tomcat, so callers queue here
+// in FIFO order, where the wait is measured, instead of inside Hikari. A caller that
+// waits longer than the acquire timeout gets a 503 rather than holding its request.
+@Component
+@ConditionalOnProperty(name = "db.bulkhead.enabled", havingValue = "true", matchIfMissing = true)
+public class DatabaseBulkhead {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public DatabaseBulkhead(MeterRegistry meterRegistry,
+                            @Value("${db.bulkhead.max-concurrent}") int maxConcurrent,
+                            @Value("${db.bulkhead.acquire-timeout-ms}") long acquireTimeoutMs) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+
+        this.waitTimer = Timer.builder("db.bulkhead.wait")
+                .description("Time spent waiting for a database permit")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("db.bulkhead.rejected")
+                .description("Repository calls rejected after the acquire timeout")
+                .register(meterRegistry);
+        Gauge.builder("db.bulkhead.queued", permits, Semaphore::getQueueLength)
+                .description("Threads waiting for a database permit")
+                .register(meterRegistry);
+        Gauge.builder("db.bulkhead.active", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Repository calls currently holding a permit")
+                .register(meterRegistry);
+    }
+
+    public void acquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for the database");
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejected.increment();
+            throw new ServiceBusyException("The service is busy, please retry shortly");
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+}
@@ -0,0 +1,34 @@
+package com.url.shortener.bulkhead;
+
+import lombok.AllArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Routes every Spring Data repository call through the bulkhead. Calls made inside an
+// already running transaction are let through: that thread holds a connection, and
+// making it wait for a permit while others wait for its connection could deadlock.
+@Aspect
+@Component
+@ConditionalOnProperty(name = "db.bulkhead.enabled", havingValue = "true", matchIfMissing = true)
+@AllArgsConstructor
+public class RepositoryBulkheadAspect {
+
+    private DatabaseBulkhead bulkhead;
+
+    @Around("target(org.springframework.data.repository.Repository)")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        bulkhead.acquire();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            bulkhead.release();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.url.shortener.click;
+
+public enum BackpressurePolicy {
+    // Wait (bounded by click.pipeline.block-timeout-ms) for the writers to free a slot
+    BLOCK,
+    // Drop the click when the buffer is full
+    DROP,
+    // Above the high-water mark keep one click in click.pipeline.sample-rate, drop when full
+    SAMPLE
+}
@@ -0,0 +1,37 @@
+package com.url.shortener.click;
+
+// Reusable per-writer holder for one drain of the ring buffer
+class ClickBatch implements ClickRingBuffer.ClickConsumer {
+
+    private final long[] urlMappingIds;
+    private final long[] clickTimes;
+    private int size;
+
+    ClickBatch(int capacity) {
+        this.urlMappingIds = new long[capacity];
+        this.clickTimes = new long[capacity];
+    }
+
+    @Override
+    public void accept(long urlMappingId, long clickEpochMillis) {
+        urlMappingIds[size] = urlMappingId;
+        clickTimes[size] = clickEpochMillis;
+        size++;
+    }
+
+    long urlMappingId(int index) {
+        return urlMappingIds[index];
+    }
+
+    long clickTime(int index) {
+        return clickTimes[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.url.shortener.click;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+@Component
+public class ClickBatchWriter {
+
+    // Postgres caps a statement at 65535 bind parameters; rollup rows take three each
+    static final int MAX_ROWS_PER_STATEMENT = 20_000;
+
+    private record RollupKey(long urlMappingId, LocalDate clickDay) {
+    }
+
+    private static final Comparator<RollupKey> ROLLUP_ORDER =
+            Comparator.comparingLong(RollupKey::urlMappingId).thenComparing(RollupKey::clickDay);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ClickBatchWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Raw events and their daily rollups are written in the same transaction
+    void write(ClickBatch batch) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime[] clickDates = new LocalDateTime[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            clickDates[i] = LocalDateTime.ofInstant(Instant.ofEpochMilli(batch.clickTime(i)), zone);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            insertClickEvents(batch, clickDates);
+            addToRollups(batch, clickDates);
+        });
+    }
+
+    // One multi-row INSERT per batch. Joining on url_mapping skips clicks whose link
+    // was deleted while they sat in the buffer instead of failing the whole batch.
+    private void insertClickEvents(ClickBatch batch, LocalDateTime[] clickDates) {
+        jdbcTemplate.update(insertSql(batch.size()), ps -> {
+            int parameter = 1;
+            for (int i = 0; i < batch.size(); i++) {
+                ps.setObject(parameter++, clickDates[i]);
+                ps.setLong(parameter++, batch.urlMappingId(i));
+            }
+        });
+    }
+
+    // Rows are upserted in key order so concurrent writers lock them in the same order.
+    // The days' advisory locks are taken shared first, so ClickRollupReconciler cannot
+    // recompute one of them while this increment is uncommitted.
+    private void addToRollups(ClickBatch batch, LocalDateTime[] clickDates) {
+        Map<RollupKey, Long> counts = new HashMap<>();
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            LocalDate day = clickDates[i].toLocalDate();
+            counts.merge(new RollupKey(batch.urlMappingId(i), day), 1L, Long::sum);
+            days.add(day);
+        }
+        List<RollupKey> keys = new ArrayList<>(counts.keySet());
+        keys.sort(ROLLUP_ORDER);
+
+        for (LocalDate day : days) {
+            jdbcTemplate.queryForObject("select 1 from pg_advisory_xact_lock_shared(?, ?)", Integer.class,
+                    ClickRollupReconciler.DAY_LOCK_SPACE, (int) day.toEpochDay());
+        }
+
+        jdbcTemplate.update(rollupSql(keys.size()), ps -> {
+            int parameter = 1;
+            for (RollupKey key : keys) {
+                ps.setLong(parameter++, key.urlMappingId());
+                ps.setObject(parameter++, key.clickDay());
+                ps.setLong(parameter++, counts.get(key));
+            }
+        });
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(160 + rows * 44);
+        sql.append("insert into click_event (click_date, url_mapping_id) ")
+                .append("select v.click_date, v.url_mapping_id from (values ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(cast(? as timestamp), cast(? as bigint))");
+        }
+        sql.append(") as v(click_date, url_mapping_id) join url_mapping m on m.id = v.url_mapping_id");
+        return sql.toString();
+    }
+
+    private static String rollupSql(int rows) {
+        StringBuilder sql = new StringBuilder(320 + rows * 60);
+        sql.append("insert into click_rollup (url_mapping_id, click_day, click_count) ")
+                .append("select v.url_mapping_id, v.click_day, v.clicks from (values ");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(cast(? as bigint), cast(? as date), cast(? as bigint))");
+        }
+        sql.append(") as v(url_mapping_id, click_day, clicks) join url_mapping m on m.id = v.url_mapping_id ")
+                .append("order by v.url_mapping_id, v.click_day ")
+                .append("on conflict (url_mapping_id, click_day) ")
+                .append("do update set click_count = click_rollup.click_count + excluded.click_count");
+        return sql.toString();
+    }
+}
@@ -0,0 +1,155 @@
+package com.url.shortener.click;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// In-memory click counts per mapping. Redirects only bump a LongAdder; a scheduled
+// flush applies the accumulated deltas with click_count = click_count + ? updates.
+// Adders are never reset: each counter remembers how much of its total is already
+// in the database, so a failed flush is simply retried with the same delta.
+// Listeners are told the deltas of every successful flush, e.g. to rank hot links
+// without querying the clicks back.
+@Slf4j
+@Component
+public class ClickCounterRegistry {
+
+    // Called on the flushing thread, once per link and flush
+    public interface FlushListener {
+        void onFlushed(Long urlMappingId, long clicks);
+    }
+
+    // Counters idle for this many flushes are dropped from the map
+    private static final int IDLE_FLUSHES_BEFORE_RETIRE = 60;
+
+    private static final class ClickCounter {
+        final LongAdder clicks = new LongAdder();
+        volatile long flushed;
+        int idleFlushes;
+
+        long pending() {
+            return clicks.sum() - flushed;
+        }
+    }
+
+    private record Flush(Long id, ClickCounter counter, long total, long delta) {
+    }
+
+    private final ConcurrentHashMap<Long, ClickCounter> counters = new ConcurrentHashMap<>();
+    private final List<FlushListener> listeners = new CopyOnWriteArrayList<>();
+    // Retired counters get one more flush, for increments that raced with their removal
+    private List<ClickCounter> retired = new ArrayList<>();
+    private List<Long> retiredIds = new ArrayList<>();
+
+    // Not synchronized: the flush does JDBC I/O, which would pin a virtual carrier thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ClickCounterRegistry(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void increment(Long urlMappingId) {
+        ClickCounter counter = counters.get(urlMappingId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(urlMappingId, id -> new ClickCounter());
+        }
+        counter.clicks.increment();
+    }
+
+    public void subscribe(FlushListener listener) {
+        listeners.add(listener);
+    }
+
+    // Clicks recorded in memory but not yet written to url_mapping.click_count
+    public long pendingClicks(Long urlMappingId) {
+        ClickCounter counter = counters.get(urlMappingId);
+        return counter == null ? 0 : counter.pending();
+    }
+
+    @Scheduled(fixedDelayString = "${click.counters.flush-interval-ms}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        List<Object[]> args = new ArrayList<>();
+        List<Flush> flushes = new ArrayList<>();
+
+        for (int i = 0; i < retired.size(); i++) {
+            collect(retiredIds.get(i), retired.get(i), args, flushes);
+        }
+        List<ClickCounter> retiring = new ArrayList<>();
+        List<Long> retiringIds = new ArrayList<>();
+        counters.forEach((id, counter) -> {
+            if (collect(id, counter, args, flushes)) {
+                counter.idleFlushes = 0;
+            } else if (++counter.idleFlushes >= IDLE_FLUSHES_BEFORE_RETIRE && counters.remove(id, counter)) {
+                retiring.add(counter);
+                retiringIds.add(id);
+            }
+        });
+
+        if (!args.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate("update url_mapping set click_count = click_count + ? where id = ?", args));
+            } catch (DataAccessException e) {
+                // Deltas stay pending and are retried on the next flush
+                log.warn("Failed to flush click counts for {} links", args.size(), e);
+                retiring.addAll(retired);
+                retiringIds.addAll(retiredIds);
+                retired = retiring;
+                retiredIds = retiringIds;
+                return;
+            }
+            for (Flush flush : flushes) {
+                flush.counter().flushed = flush.total();
+            }
+            for (FlushListener listener : listeners) {
+                for (Flush flush : flushes) {
+                    listener.onFlushed(flush.id(), flush.delta());
+                }
+            }
+        }
+        retired = retiring;
+        retiredIds = retiringIds;
+    }
+
+    private static boolean collect(Long id, ClickCounter counter, List<Object[]> args, List<Flush> flushes) {
+        long total = counter.clicks.sum();
+        long delta = total - counter.flushed;
+        if (delta <= 0) {
+            return false;
+        }
+        args.add(new Object[]{delta, id});
+        flushes.add(new Flush(id, counter, total, delta));
+        return true;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        flush();
+    }
+}
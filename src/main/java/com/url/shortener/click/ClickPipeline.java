@@ -0,0 +1,154 @@
+package com.url.shortener.click;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Takes click recording off the redirect path: redirects only bump the in-memory counter
+// and enqueue into a lock-free ring buffer, and background writers drain it into batched
+// inserts. Counts stay exact even when backpressure drops the click event itself.
+@Slf4j
+@Component
+public class ClickPipeline implements SmartLifecycle {
+
+    private final ClickRingBuffer buffer;
+    private final ClickBatchWriter writer;
+    private final ClickCounterRegistry clickCounters;
+    private final BackpressurePolicy backpressure;
+    private final long blockTimeoutNanos;
+    private final int sampleRate;
+    private final int sampleThreshold;
+    private final int writerThreads;
+    private final int batchSize;
+    private final long idleWaitNanos;
+
+    private final Counter droppedClicks;
+    private final Counter failedClicks;
+
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running;
+
+    public ClickPipeline(ClickBatchWriter writer,
+                         ClickCounterRegistry clickCounters,
+                         MeterRegistry meterRegistry,
+                         @Value("${click.pipeline.capacity}") int capacity,
+                         @Value("${click.pipeline.backpressure}") BackpressurePolicy backpressure,
+                         @Value("${click.pipeline.block-timeout-ms}") long blockTimeoutMs,
+                         @Value("${click.pipeline.sample-rate}") int sampleRate,
+                         @Value("${click.pipeline.writer-threads}") int writerThreads,
+                         @Value("${click.pipeline.batch-size}") int batchSize,
+                         @Value("${click.pipeline.idle-wait-ms}") long idleWaitMs) {
+        this.buffer = new ClickRingBuffer(capacity);
+        this.writer = writer;
+        this.clickCounters = clickCounters;
+        this.backpressure = backpressure;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.sampleRate = Math.max(1, sampleRate);
+        this.sampleThreshold = buffer.capacity() / 4 * 3;
+        this.writerThreads = Math.max(1, writerThreads);
+        this.batchSize = Math.min(Math.max(1, batchSize), ClickBatchWriter.MAX_ROWS_PER_STATEMENT);
+        this.idleWaitNanos = TimeUnit.MILLISECONDS.toNanos(idleWaitMs);
+
+        this.droppedClicks = Counter.builder("click.pipeline.dropped").register(meterRegistry);
+        this.failedClicks = Counter.builder("click.pipeline.failed").register(meterRegistry);
+        Gauge.builder("click.pipeline.queued", buffer, ClickRingBuffer::size).register(meterRegistry);
+    }
+
+    public boolean record(Long urlMappingId) {
+        clickCounters.increment(urlMappingId);
+
+        long id = urlMappingId;
+        long now = System.currentTimeMillis();
+        boolean accepted = switch (backpressure) {
+            case BLOCK -> offerBlocking(id, now);
+            case SAMPLE -> (buffer.size() < sampleThreshold || ThreadLocalRandom.current().nextInt(sampleRate) == 0)
+                    && buffer.offer(id, now);
+            case DROP -> buffer.offer(id, now);
+        };
+        if (!accepted) {
+            droppedClicks.increment();
+        }
+        return accepted;
+    }
+
+    private boolean offerBlocking(long urlMappingId, long now) {
+        if (buffer.offer(urlMappingId, now)) {
+            return true;
+        }
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        while (System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(50_000);
+            if (buffer.offer(urlMappingId, now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drainLoop() {
+        ClickBatch batch = new ClickBatch(batchSize);
+        while (running || buffer.size() > 0) {
+            batch.clear();
+            if (buffer.drain(batch, batchSize) == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(idleWaitNanos);
+                continue;
+            }
+            try {
+                writer.write(batch);
+            } catch (RuntimeException e) {
+                failedClicks.increment(batch.size());
+                log.warn("Failed to write {} click events", batch.size(), e);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < writerThreads; i++) {
+            Thread thread = new Thread(this::drainLoop, "click-writer-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            writers.add(thread);
+        }
+    }
+
+    // Writers drain whatever is still buffered before returning
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread thread : writers) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        writers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Start before and stop after the web server, so no accepted click is left behind
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
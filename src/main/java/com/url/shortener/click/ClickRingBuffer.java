@@ -0,0 +1,87 @@
+package com.url.shortener.click;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded multi-producer/multi-consumer ring of (urlMappingId, clickTime) pairs.
+// Each slot carries a sequence number (Vyukov's scheme): producers and consumers
+// claim positions with a single CAS and never take a lock.
+class ClickRingBuffer {
+
+    interface ClickConsumer {
+        void accept(long urlMappingId, long clickEpochMillis);
+    }
+
+    private final int mask;
+    private final long[] urlMappingIds;
+    private final long[] clickTimes;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    ClickRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.urlMappingIds = new long[capacity];
+        this.clickTimes = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(long urlMappingId, long clickEpochMillis) {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    urlMappingIds[index] = urlMappingId;
+                    clickTimes[index] = clickEpochMillis;
+                    // Publishes the slot to consumers
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    int drain(ClickConsumer consumer, int limit) {
+        int drained = 0;
+        long position = tail.get();
+        while (drained < limit) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    long urlMappingId = urlMappingIds[index];
+                    long clickTime = clickTimes[index];
+                    // Hands the slot back to producers for the next lap
+                    sequences.set(index, position + mask + 1);
+                    consumer.accept(urlMappingId, clickTime);
+                    drained++;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                break;
+            } else {
+                position = tail.get();
+            }
+        }
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, head.get() - tail.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
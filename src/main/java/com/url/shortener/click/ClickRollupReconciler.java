@@ -0,0 +1,92 @@
+package com.url.shortener.click;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Recomputes click_rollup rows from raw click_event rows, one day per transaction.
+// The nightly run rewrites the last few closed days, which also absorbs clicks that
+// were recorded before rollups existed. The optional startup backfill covers all
+// history. Days without raw rows are never touched, so their rollups are kept.
+// Only closed days are recomputed, and each recompute holds the day's advisory lock
+// exclusively while ClickBatchWriter holds it shared, so a late batch for that day
+// cannot commit between the count and the upsert and have its increment overwritten.
+@Slf4j
+@Component
+public class ClickRollupReconciler {
+
+    // First key of the per-day advisory locks (pg_advisory_xact_lock(int, int)); the second is the epoch day
+    static final int DAY_LOCK_SPACE = 0x636C6B72;
+
+    private static final String RECOMPUTE_DAY =
+            "insert into click_rollup (url_mapping_id, click_day, click_count) " +
+            "select c.url_mapping_id, cast(c.click_date as date), count(*) from click_event c " +
+            "where c.click_date >= ? and c.click_date < ? " +
+            "group by c.url_mapping_id, cast(c.click_date as date) " +
+            "order by c.url_mapping_id " +
+            "on conflict (url_mapping_id, click_day) do update set click_count = excluded.click_count";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int reconcileDays;
+    private final boolean backfillOnStartup;
+
+    public ClickRollupReconciler(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${analytics.rollups.reconcile-days}") int reconcileDays,
+                                 @Value("${analytics.rollups.backfill-on-startup}") boolean backfillOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileDays = reconcileDays;
+        this.backfillOnStartup = backfillOnStartup;
+    }
+
+    @Scheduled(cron = "${analytics.rollups.reconcile-cron}")
+    public void reconcileRecentDays() {
+        LocalDate today = LocalDate.now();
+        recompute(today.minusDays(reconcileDays), today);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            LocalDateTime oldest = jdbcTemplate.queryForObject("select min(click_date) from click_event", LocalDateTime.class);
+            if (oldest != null) {
+                recompute(oldest.toLocalDate(), LocalDate.now());
+            }
+        }, "click-rollup-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Rebuilds the closed days in [from, to); also called by the archiver before raw rows are removed
+    public void recompute(LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        LocalDate end = to.isAfter(today) ? today : to;
+        for (LocalDate day = from; day.isBefore(end); day = day.plusDays(1)) {
+            LocalDate current = day;
+            try {
+                Integer rows = transactionTemplate.execute(status -> {
+                    jdbcTemplate.queryForObject("select 1 from pg_advisory_xact_lock(?, ?)", Integer.class,
+                            DAY_LOCK_SPACE, (int) current.toEpochDay());
+                    return jdbcTemplate.update(RECOMPUTE_DAY, current.atStartOfDay(), current.plusDays(1).atStartOfDay());
+                });
+                log.debug("Recomputed {} click rollups for {}", rows, current);
+            } catch (RuntimeException e) {
+                log.warn("Failed to recompute click rollups for {}", current, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.url.shortener.controller;
+
+import com.url.shortener.dtos.DeletionStatusDto;
+import com.url.shortener.repository.DeletionJobRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+// Progress of an account deletion. Public because the account's tokens are revoked as
+// soon as it is closed; the random job id returned by DELETE /api/users/delete is the handle.
+// Only the status is returned, the counts went to the account owner with that response,
+// and RateLimitFilter limits lookups per IP so handles cannot be probed in bulk.
+@RestController
+@RequestMapping("/api/deletions")
+@AllArgsConstructor
+public class DeletionController {
+
+    private DeletionJobRepository deletionJobRepository;
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<DeletionStatusDto> getDeletion(@PathVariable UUID jobId)
+    {
+        return deletionJobRepository.findById(jobId)
+                .map(job -> ResponseEntity.ok(new DeletionStatusDto(job.getStatus())))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
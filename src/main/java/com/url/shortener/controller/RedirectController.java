@@ -1,6 +1,6 @@
 package com.url.shortener.controller;
 
-import com.url.shortener.models.UrlMapping;
+import com.url.shortener.dtos.RedirectTarget;
 import com.url.shortener.service.UrlMappingService;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpHeaders;
@@ -24,11 +24,11 @@ public class RedirectController {
     @GetMapping("/{shortUrl}")
     public ResponseEntity<Void> redirect(@PathVariable String shortUrl)
     {
-        UrlMapping urlMapping = urlMappingService.getOriginalUrl(shortUrl);
-        if(urlMapping != null)
+        RedirectTarget target = urlMappingService.getOriginalUrl(shortUrl);
+        if(target != null)
         {
             HttpHeaders httpHeaders = new HttpHeaders();
-            httpHeaders.add("Location",urlMapping.getOriginalUrl());
+            httpHeaders.add("Location",target.originalUrl());
             return ResponseEntity.status(302).headers(httpHeaders).build();
         }
         else {
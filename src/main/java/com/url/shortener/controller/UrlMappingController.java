@@ -1,22 +1,41 @@
 package com.url.shortener.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.url.shortener.dtos.BatchShortenResult;
 import com.url.shortener.dtos.ClickEventDto;
 import com.url.shortener.dtos.UrlMappingDto;
+import com.url.shortener.dtos.UrlMappingPage;
+import com.url.shortener.exceptions.BadRequestException;
 import com.url.shortener.models.User;
+import com.url.shortener.service.BatchShortenService;
 import com.url.shortener.service.UrlMappingService;
 import com.url.shortener.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import org.springframework.cglib.core.Local;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.Principal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/urls")
@@ -24,21 +43,120 @@ import java.util.Map;
 public class UrlMappingController {
     private UrlMappingService urlMappingService;
     private UserService userService;
+    private BatchShortenService batchShortenService;
+    private ObjectMapper objectMapper;
 
 //    {"originalUrl","https://example.com"}
+//    ?dedupe=true returns the existing link if this user already shortened the same URL
 
     @PostMapping("/shorten")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<UrlMappingDto> createShortUrl(@RequestBody Map<String,String> request,
+                                                        @RequestParam(value = "dedupe", defaultValue = "false") boolean dedupe,
                                                         Principal principal){
         String originalUrl = request.get("originalUrl");
         User user = userService.findByUsername(principal.getName());
 
 //        call service
-        UrlMappingDto urlMappingDto = urlMappingService.createShortUrl(originalUrl,user);
+        UrlMappingDto urlMappingDto = urlMappingService.createShortUrl(originalUrl, user, dedupe);
         return ResponseEntity.ok(urlMappingDto);
     }
 
+//    Body is a JSON array or NDJSON (application/x-ndjson) of URLs, each either a string or
+//    {"originalUrl": "..."}. Results are streamed back in the same format and order,
+//    one per input item, as each chunk is saved.
+    @PostMapping(value = "/shorten/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasRole('USER')")
+    public void createShortUrls(Principal principal, HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        User user = userService.findByUsername(principal.getName());
+        boolean ndjson = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()));
+        ObjectWriter writer = objectMapper.writerFor(BatchShortenResult.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonParser parser = objectMapper.createParser(request.getInputStream())) {
+            if (!ndjson && parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Expected a JSON array of URLs");
+            }
+            UrlReader urls = new UrlReader(parser, !ndjson);
+            response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+            try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+                if (ndjson) {
+                    generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                } else {
+                    generator.writeStartArray();
+                }
+                try {
+                    batchShortenService.shorten(user, urls, results -> {
+                        try {
+                            for (BatchShortenResult result : results) {
+                                writer.writeValue(generator, result);
+                            }
+                            generator.flush();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (BadRequestException e) {
+//                    Earlier chunks are already saved and sent, so report the bad input in-band
+                    writer.writeValue(generator, BatchShortenResult.failed(urls.read, null,
+                            e.getMessage() + "; items without a result were not saved"));
+                }
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        }
+    }
+
+    // Pulls one URL at a time off the request body so large batches are never held in memory
+    private static final class UrlReader implements Iterator<String> {
+        private final JsonParser parser;
+        private final boolean array;
+        private JsonToken token;
+        private int read;
+
+        UrlReader(JsonParser parser, boolean array) {
+            this.parser = parser;
+            this.array = array;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (token == null) {
+                try {
+                    token = parser.nextToken();
+                } catch (IOException e) {
+                    throw new BadRequestException("Malformed input after item " + read + ": " + e.getMessage());
+                }
+            }
+            return token != null && !(array && token == JsonToken.END_ARRAY);
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                String url = null;
+                if (token == JsonToken.VALUE_STRING) {
+                    url = parser.getText();
+                } else if (token == JsonToken.START_OBJECT) {
+                    JsonNode item = parser.readValueAsTree();
+                    url = item.path("originalUrl").isTextual() ? item.get("originalUrl").asText() : null;
+                } else {
+                    parser.skipChildren();
+                }
+                token = null;
+                read++;
+                return url;
+            } catch (IOException e) {
+                throw new BadRequestException("Malformed input after item " + read + ": " + e.getMessage());
+            }
+        }
+    }
+
     @DeleteMapping("/{urlId}")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> deleteUrl(@PathVariable Long urlId, Principal principal)
@@ -52,13 +170,41 @@ public class UrlMappingController {
         }
     }
 
+//    Streams the full list as a JSON array while the rows are read page by page,
+//    so large accounts never hold every mapping in memory at once
     @GetMapping("/myurls")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<UrlMappingDto>> getUserUrls(Principal principal)
+    public void getUserUrls(Principal principal, HttpServletResponse response) throws IOException
+    {
+        User user = userService.findByUsername(principal.getName());
+        ObjectWriter writer = objectMapper.writerFor(UrlMappingDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            urlMappingService.forEachUrlByUser(user, urlMappingDto -> {
+                try {
+                    writer.writeValue(generator, urlMappingDto);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    @GetMapping("/myurls/page")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<UrlMappingPage> getUserUrlPage(Principal principal,
+                                                         @RequestParam(value = "cursor", required = false) String cursor,
+                                                         @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                         @RequestParam(value = "sort", defaultValue = "newest") String sort,
+                                                         @RequestParam(value = "q", required = false) String query)
     {
         User user = userService.findByUsername(principal.getName());
-        List<UrlMappingDto> urls = urlMappingService.getUrlsByUser(user);
-        return ResponseEntity.ok(urls);
+        boolean oldestFirst = "oldest".equalsIgnoreCase(sort);
+        UrlMappingPage page = urlMappingService.getUrlPage(user, cursor, limit, oldestFirst, query);
+        return ResponseEntity.ok(page);
     }
 
     @GetMapping("/analytics/{shortUrl}")
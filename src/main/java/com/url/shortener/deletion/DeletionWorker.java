@@ -0,0 +1,176 @@
+package com.url.shortener.deletion;
+
+import com.url.shortener.invalidation.InvalidationBus;
+import com.url.shortener.models.DeletionJob;
+import com.url.shortener.otp.OtpStore;
+import com.url.shortener.repository.DeletionJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Reclaims the storage of deleted links and closed accounts in the background.
+//   - links deleted one at a time are purged once they have been tombstoned for grace-ms
+//   - each DeletionJob tombstones all links of its user (evicting them from the redirect
+//     cache on every node), purges them once the grace period is over, then deletes the user row
+// The grace period lets click batches already queued for a link land before its rows go.
+// Jobs are claimed with a lease, so several nodes can run workers; a job whose worker
+// died is picked up again once its lease expires, and every step is safe to repeat.
+@Slf4j
+@Component
+public class DeletionWorker {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final DeletionJobRepository deletionJobRepository;
+    private final UrlMappingPurger purger;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InvalidationBus invalidationBus;
+    private final OtpStore otpStore;
+    private final int chunkSize;
+    private final long graceMs;
+    private final long leaseMs;
+    private final int retentionDays;
+    private final Counter mappingsPurged;
+    private final Counter clickEventsPurged;
+
+    public DeletionWorker(DeletionJobRepository deletionJobRepository,
+                          UrlMappingPurger purger,
+                          JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          InvalidationBus invalidationBus,
+                          OtpStore otpStore,
+                          MeterRegistry meterRegistry,
+                          @Value("${deletion.mapping-chunk-size}") int chunkSize,
+                          @Value("${deletion.grace-ms}") long graceMs,
+                          @Value("${deletion.lease-ms}") long leaseMs,
+                          @Value("${deletion.job-retention-days}") int retentionDays) {
+        this.deletionJobRepository = deletionJobRepository;
+        this.purger = purger;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invalidationBus = invalidationBus;
+        this.otpStore = otpStore;
+        this.chunkSize = chunkSize;
+        this.graceMs = graceMs;
+        this.leaseMs = leaseMs;
+        this.retentionDays = retentionDays;
+        this.mappingsPurged = Counter.builder("deletion.mappings.purged").register(meterRegistry);
+        this.clickEventsPurged = Counter.builder("deletion.click.events.purged").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${deletion.poll-interval-ms}")
+    public void run() {
+        try {
+            purgeDeletedLinks();
+            DeletionJob job;
+            while ((job = claimNext()) != null) {
+                process(job);
+            }
+            deletionJobRepository.deleteCompletedBefore(LocalDateTime.now().minusDays(retentionDays));
+        } catch (RuntimeException e) {
+            log.warn("Deletion worker run failed", e);
+        }
+    }
+
+    private void purgeDeletedLinks() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(graceMs));
+        while (true) {
+            List<Long> ids = purger.findPurgeable(cutoff, chunkSize);
+            if (ids.isEmpty()) {
+                return;
+            }
+            record(purger.purge(ids));
+        }
+    }
+
+    private DeletionJob claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        return transactionTemplate.execute(status -> deletionJobRepository.lockNext(now)
+                .map(job -> {
+                    job.setStatus(DeletionJob.Status.RUNNING);
+                    job.setLeaseUntil(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs)));
+                    return deletionJobRepository.save(job);
+                })
+                .orElse(null));
+    }
+
+    private void process(DeletionJob job) {
+        Long userId = job.getUserId();
+        LocalDateTime started = LocalDateTime.now();
+        try {
+            while (true) {
+                List<String> shortUrls = purger.tombstoneUserMappings(userId, started, chunkSize);
+                if (shortUrls.isEmpty()) {
+                    break;
+                }
+                invalidationBus.invalidateLinks(shortUrls);
+                job.setMappingsTombstoned(job.getMappingsTombstoned() + shortUrls.size());
+                job = saveProgress(job, leaseMs);
+            }
+
+            LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(graceMs));
+            while (true) {
+                List<Long> ids = purger.findPurgeableByUser(userId, cutoff, chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                UrlMappingPurger.Purged purged = purger.purge(ids);
+                record(purged);
+                job.setMappingsDeleted(job.getMappingsDeleted() + purged.mappings());
+                job.setClickEventsDeleted(job.getClickEventsDeleted() + purged.clickEvents());
+                job = saveProgress(job, leaseMs);
+            }
+
+            if (purger.countByUser(userId) > 0) {
+//                Links still inside the grace period; come back once it is over
+                saveProgress(job, graceMs);
+                return;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("delete from forgot_password where user_id = ?", userId);
+                jdbcTemplate.update("delete from users where id = ? and deleted_at is not null", userId);
+            });
+            otpStore.remove(userId);
+            invalidationBus.invalidateUser(userId);
+
+            LocalDateTime now = LocalDateTime.now();
+            job.setStatus(DeletionJob.Status.DONE);
+            job.setCompletedDate(now);
+            job.setUpdatedDate(now);
+            job.setLeaseUntil(null);
+            job.setLastError(null);
+            deletionJobRepository.save(job);
+            log.info("Deleted user {}: {} links, {} click events", userId, job.getMappingsDeleted(), job.getClickEventsDeleted());
+        } catch (RuntimeException e) {
+            log.warn("Deletion job {} for user {} failed, will retry", job.getId(), userId, e);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            job.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            saveProgress(job, leaseMs);
+        }
+    }
+
+    // Records progress and extends the lease by the given time
+    private DeletionJob saveProgress(DeletionJob job, long leaseForMs) {
+        LocalDateTime now = LocalDateTime.now();
+        job.setUpdatedDate(now);
+        job.setLeaseUntil(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseForMs)));
+        return deletionJobRepository.save(job);
+    }
+
+    private void record(UrlMappingPurger.Purged purged) {
+        mappingsPurged.increment(purged.mappings());
+        clickEventsPurged.increment(purged.clickEvents());
+    }
+}
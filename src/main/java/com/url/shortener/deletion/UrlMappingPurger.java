@@ -0,0 +1,83 @@
+package com.url.shortener.deletion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Set-based removal of tombstoned links. Every statement touches a bounded number of
+// rows and runs in its own autocommit transaction, so no lock or connection is held
+// for longer than one chunk no matter how large the account is.
+@Component
+public class UrlMappingPurger {
+
+    public record Purged(int mappings, long clickEvents) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int clickChunkSize;
+
+    public UrlMappingPurger(JdbcTemplate jdbcTemplate,
+                            @Value("${deletion.click-chunk-size}") int clickChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clickChunkSize = clickChunkSize;
+    }
+
+    // Tombstones up to limit live links of the user; returns their codes for cache eviction
+    public List<String> tombstoneUserMappings(Long userId, LocalDateTime deletedAt, int limit) {
+        return jdbcTemplate.queryForList(
+                "update url_mapping set deleted_at = ? where id in " +
+                        "(select id from url_mapping where user_id = ? and deleted_at is null limit ?) " +
+                        "returning short_url",
+                String.class, deletedAt, userId, limit);
+    }
+
+    // Links of the user tombstoned before the cutoff
+    public List<Long> findPurgeableByUser(Long userId, LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList(
+                "select id from url_mapping where user_id = ? and deleted_at < ? limit ?",
+                Long.class, userId, cutoff, limit);
+    }
+
+    // Individually deleted links of active accounts; closed accounts are left to their job
+    public List<Long> findPurgeable(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList(
+                "select m.id from url_mapping m join users u on u.id = m.user_id " +
+                        "where m.deleted_at < ? and u.deleted_at is null limit ?",
+                Long.class, cutoff, limit);
+    }
+
+    public long countByUser(Long userId) {
+        Long count = jdbcTemplate.queryForObject("select count(*) from url_mapping where user_id = ?", Long.class, userId);
+        return count == null ? 0 : count;
+    }
+
+    public Purged purge(List<Long> mappingIds) {
+        if (mappingIds.isEmpty()) {
+            return new Purged(0, 0);
+        }
+        Long[] ids = mappingIds.toArray(new Long[0]);
+        long clickEvents = 0;
+        while (true) {
+            int deleted = update("delete from click_event where id in " +
+                    "(select id from click_event where url_mapping_id = any(?) limit " + clickChunkSize + ")", ids);
+            clickEvents += deleted;
+            if (deleted < clickChunkSize) {
+                break;
+            }
+        }
+        update("delete from click_rollup where url_mapping_id = any(?)", ids);
+        int mappings = update("delete from url_mapping where id = any(?) and deleted_at is not null", ids);
+        return new Purged(mappings, clickEvents);
+    }
+
+    private int update(String sql, Long[] ids) {
+        return jdbcTemplate.update(sql, ps -> {
+            Array array = ps.getConnection().createArrayOf("bigint", ids);
+            ps.setArray(1, array);
+        });
+    }
+}
@@ -0,0 +1,17 @@
+package com.url.shortener.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One line of the batch shorten response, in input order. Either shortUrl and id or
+// error is set.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchShortenResult(int index, String originalUrl, String shortUrl, Long id, String error) {
+
+    public static BatchShortenResult created(int index, String originalUrl, String shortUrl, Long id) {
+        return new BatchShortenResult(index, originalUrl, shortUrl, id, null);
+    }
+
+    public static BatchShortenResult failed(int index, String originalUrl, String error) {
+        return new BatchShortenResult(index, originalUrl, null, null, error);
+    }
+}
@@ -0,0 +1,8 @@
+package com.url.shortener.dtos;
+
+import java.time.LocalDate;
+
+public interface DailyClickCount {
+    LocalDate getClickDate();
+    Long getClicks();
+}
@@ -0,0 +1,15 @@
+package com.url.shortener.dtos;
+
+import com.url.shortener.models.DeletionJob;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record DeletionJobDto(UUID id, DeletionJob.Status status, long mappingsTombstoned, long mappingsDeleted,
+                             long clickEventsDeleted, LocalDateTime createdDate, LocalDateTime completedDate) {
+
+    public static DeletionJobDto from(DeletionJob job) {
+        return new DeletionJobDto(job.getId(), job.getStatus(), job.getMappingsTombstoned(), job.getMappingsDeleted(),
+                job.getClickEventsDeleted(), job.getCreatedDate(), job.getCompletedDate());
+    }
+}
@@ -0,0 +1,7 @@
+package com.url.shortener.dtos;
+
+import com.url.shortener.models.DeletionJob;
+
+// What the public progress endpoint reveals about a deletion job
+public record DeletionStatusDto(DeletionJob.Status status) {
+}
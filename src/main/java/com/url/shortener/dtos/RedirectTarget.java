@@ -0,0 +1,4 @@
+package com.url.shortener.dtos;
+
+public record RedirectTarget(Long urlMappingId, String originalUrl) {
+}
@@ -1,10 +1,14 @@
 package com.url.shortener.dtos;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class UrlMappingDto {
     private Long id;
     private String originalUrl;
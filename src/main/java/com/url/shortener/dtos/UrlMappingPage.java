@@ -0,0 +1,7 @@
+package com.url.shortener.dtos;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record UrlMappingPage(List<UrlMappingDto> items, String nextCursor) {
+}
@@ -0,0 +1,8 @@
+package com.url.shortener.exceptions;
+
+public class ServiceBusyException extends RuntimeException {
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
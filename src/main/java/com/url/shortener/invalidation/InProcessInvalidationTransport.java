@@ -0,0 +1,28 @@
+package com.url.shortener.invalidation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Delivers messages synchronously to the listeners in this JVM. For tests, where
+// several buses can share one instance, and for single-node setups without Postgres.
+@Component
+@ConditionalOnProperty(name = "invalidation.transport", havingValue = "in-process")
+public class InProcessInvalidationTransport implements InvalidationTransport {
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        for (Listener listener : listeners) {
+            listener.onMessage(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,207 @@
+package com.url.shortener.invalidation;
+
+import com.url.shortener.security.SecurityVersionCache;
+import com.url.shortener.service.ShortUrlCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+// Keeps the per-node caches of links (ShortUrlCache) and users (SecurityVersionCache)
+// consistent across replicas. Call it after the change has committed:
+//   - the local caches are invalidated right away
+//   - the keys are queued for the other nodes; a publisher thread waits coalesce-ms for
+//     more to arrive, then sends the distinct keys in messages of up to batch-size
+// Invalidations are idempotent, so messages arriving out of order cannot bring stale
+// data back, and ShortUrlCache rejects puts read before the last invalidation of their
+// key. Other nodes see a change within coalesce-ms plus the transport's latency.
+@Slf4j
+@Component
+public class InvalidationBus implements InvalidationTransport.Listener, SmartLifecycle {
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final InvalidationTransport transport;
+    private final ShortUrlCache shortUrlCache;
+    private final SecurityVersionCache securityVersions;
+    private final long coalesceMs;
+    private final long retryMs;
+    private final int batchSize;
+
+    private final Set<String> pendingLinks = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingUsers = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private volatile Thread publisher;
+
+    private final Counter published;
+    private final Counter received;
+    private final Counter failed;
+    private final Counter gaps;
+
+    public InvalidationBus(InvalidationTransport transport,
+                           ShortUrlCache shortUrlCache,
+                           SecurityVersionCache securityVersions,
+                           MeterRegistry meterRegistry,
+                           @Value("${invalidation.coalesce-ms}") long coalesceMs,
+                           @Value("${invalidation.retry-ms}") long retryMs,
+                           @Value("${invalidation.batch-size}") int batchSize) {
+        this.transport = transport;
+        this.shortUrlCache = shortUrlCache;
+        this.securityVersions = securityVersions;
+        this.coalesceMs = coalesceMs;
+        this.retryMs = retryMs;
+        this.batchSize = Math.max(1, batchSize);
+
+        this.published = Counter.builder("invalidation.published").register(meterRegistry);
+        this.received = Counter.builder("invalidation.received").register(meterRegistry);
+        this.failed = Counter.builder("invalidation.failed").register(meterRegistry);
+        this.gaps = Counter.builder("invalidation.gaps").register(meterRegistry);
+        transport.subscribe(this);
+    }
+
+    public void invalidateLink(String shortUrl) {
+        shortUrlCache.invalidate(shortUrl);
+        pendingLinks.add(shortUrl);
+        wakePublisher();
+    }
+
+    public void invalidateLinks(Collection<String> shortUrls) {
+        shortUrlCache.invalidateAll(shortUrls);
+        pendingLinks.addAll(shortUrls);
+        wakePublisher();
+    }
+
+    public void invalidateUser(Long userId) {
+        securityVersions.invalidate(userId);
+        pendingUsers.add(userId);
+        wakePublisher();
+    }
+
+    @Override
+    public void onMessage(InvalidationMessage message) {
+        if (nodeId.equals(message.origin())) {
+            return;
+        }
+        shortUrlCache.invalidateAll(message.links());
+        message.users().forEach(securityVersions::invalidate);
+        received.increment(message.size());
+    }
+
+    @Override
+    public void onGap() {
+        shortUrlCache.invalidateAll();
+        securityVersions.invalidateAll();
+        gaps.increment();
+        log.info("Cleared link and user caches after missing invalidation messages");
+    }
+
+    private void wakePublisher() {
+        Thread thread = publisher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void publishLoop() {
+        while (running) {
+            if (pendingLinks.isEmpty() && pendingUsers.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+//                Let the rest of a burst join the batch
+                Thread.sleep(coalesceMs);
+                if (!flush()) {
+                    Thread.sleep(retryMs);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+//        Clear a pending interrupt from stop() so the last flush can get a connection
+        Thread.interrupted();
+        flush();
+    }
+
+    // Returns false if publishing failed; the keys are queued again
+    private boolean flush() {
+        List<String> links = drain(pendingLinks);
+        List<Long> users = drain(pendingUsers);
+        int linkIndex = 0;
+        int userIndex = 0;
+        while (linkIndex < links.size() || userIndex < users.size()) {
+            int linkEnd = Math.min(links.size(), linkIndex + batchSize);
+            int userEnd = Math.min(users.size(), userIndex + batchSize - (linkEnd - linkIndex));
+            InvalidationMessage message = new InvalidationMessage(nodeId,
+                    links.subList(linkIndex, linkEnd), users.subList(userIndex, userEnd));
+            try {
+                transport.publish(message);
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.warn("Failed to publish {} invalidations, will retry", links.size() - linkIndex + users.size() - userIndex, e);
+                pendingLinks.addAll(links.subList(linkIndex, links.size()));
+                pendingUsers.addAll(users.subList(userIndex, users.size()));
+                return false;
+            }
+            published.increment(message.size());
+            linkIndex = linkEnd;
+            userIndex = userEnd;
+        }
+        return true;
+    }
+
+    private static <T> List<T> drain(Set<T> pending) {
+        List<T> drained = new ArrayList<>();
+        for (Iterator<T> iterator = pending.iterator(); iterator.hasNext(); ) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::publishLoop, "invalidation-publisher");
+        thread.setDaemon(true);
+        publisher = thread;
+        thread.start();
+    }
+
+    // Publishes whatever is still queued before returning
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = publisher;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(retryMs + 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        publisher = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 16384;
+    }
+}
@@ -0,0 +1,20 @@
+package com.url.shortener.invalidation;
+
+import java.util.List;
+
+// One batch of invalidated keys, tagged with the node that sent it
+public record InvalidationMessage(String origin, List<String> links, List<Long> users) {
+
+    int size() {
+        return links.size() + users.size();
+    }
+
+    // Two messages with about half the keys each, for transports with a size limit
+    List<InvalidationMessage> split() {
+        int linksHalf = links.size() / 2;
+        int usersHalf = (users.size() + 1) / 2;
+        return List.of(
+                new InvalidationMessage(origin, links.subList(0, linksHalf), users.subList(0, usersHalf)),
+                new InvalidationMessage(origin, links.subList(linksHalf, links.size()), users.subList(usersHalf, users.size())));
+    }
+}
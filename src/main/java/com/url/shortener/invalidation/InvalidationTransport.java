@@ -0,0 +1,19 @@
+package com.url.shortener.invalidation;
+
+// Carries invalidation messages between nodes for InvalidationBus. Selected with
+// invalidation.transport; a transport delivers every message to every subscribed
+// listener, the sender's own included.
+public interface InvalidationTransport {
+
+    interface Listener {
+
+        void onMessage(InvalidationMessage message);
+
+        // Messages may have been lost (e.g. while reconnecting); caches must be cleared
+        void onGap();
+    }
+
+    void publish(InvalidationMessage message);
+
+    void subscribe(Listener listener);
+}
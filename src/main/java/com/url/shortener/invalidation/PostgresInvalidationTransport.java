@@ -0,0 +1,173 @@
+package com.url.shortener.invalidation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// LISTEN/NOTIFY on the application database, so no extra infrastructure is needed.
+// Messages are sent with pg_notify over the pool, as JSON. Postgres caps a payload at
+// 8000 bytes, so larger messages are split. Listening holds one dedicated connection
+// outside the pool, polled by a single thread; notifications sent while it is
+// disconnected are lost, so every reconnect is reported to the listeners as a gap.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "invalidation.transport", havingValue = "postgres", matchIfMissing = true)
+public class PostgresInvalidationTransport implements InvalidationTransport, SmartLifecycle {
+
+    static final String CHANNEL = "cache_invalidation";
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int pollMs;
+    private final long reconnectMs;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    public PostgresInvalidationTransport(JdbcTemplate jdbcTemplate,
+                                         ObjectMapper objectMapper,
+                                         @Value("${spring.datasource.url}") String url,
+                                         @Value("${spring.datasource.username}") String username,
+                                         @Value("${spring.datasource.password}") String password,
+                                         @Value("${invalidation.postgres.poll-ms}") int pollMs,
+                                         @Value("${invalidation.postgres.reconnect-ms}") long reconnectMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.pollMs = pollMs;
+        this.reconnectMs = reconnectMs;
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize invalidation message", e);
+        }
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES && message.size() > 1) {
+            message.split().forEach(this::publish);
+            return;
+        }
+        jdbcTemplate.execute("select pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) ps -> {
+            ps.setString(1, CHANNEL);
+            ps.setString(2, payload);
+            return ps.execute();
+        });
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    private void listenLoop() {
+        boolean gap = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (gap) {
+                    log.info("Invalidation listener reconnected");
+                    listeners.forEach(Listener::onGap);
+                }
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                gap = true;
+                if (running) {
+                    log.warn("Invalidation listener lost its connection, retrying in {} ms", reconnectMs, e);
+                    try {
+                        Thread.sleep(reconnectMs);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        InvalidationMessage message;
+        try {
+            message = objectMapper.readValue(payload, InvalidationMessage.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed invalidation message: {}", e.getMessage());
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onMessage(message);
+            } catch (RuntimeException e) {
+                log.warn("Invalidation listener failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread listener = new Thread(this::listenLoop, "invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+        thread = listener;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread listener = thread;
+        if (listener != null) {
+            try {
+                listener.join(pollMs + 1000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Listening before the caches are warmed and the web server starts
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 16384;
+    }
+}
@@ -0,0 +1,274 @@
+package com.url.shortener.mail;
+
+import com.url.shortener.models.MailOutbox;
+import com.url.shortener.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Delivers the mail outbox in the background. Each worker claims a batch of due rows
+// (skipping rows other workers or nodes hold), leases them, and sends the whole batch
+// over one SMTP connection. Delivered rows are deleted; failures are retried with
+// exponential backoff until max-attempts, then marked FAILED. Because the lease is
+// committed before sending, a crash mid-send means a retry, never a lost mail.
+@Slf4j
+@Component
+public class MailDispatcher implements SmartLifecycle {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final JavaMailSender javaMailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final String from;
+    private final int workerCount;
+    private final int batchSize;
+    private final long pollIntervalNanos;
+    private final long leaseMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter abandoned;
+    private final Timer sendSuccess;
+    private final Timer sendFailure;
+    private final Timer deliveryDelay;
+
+    private final List<Thread> workers = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    public MailDispatcher(MailOutboxRepository mailOutboxRepository,
+                          JavaMailSender javaMailSender,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${forgot.username}") String from,
+                          @Value("${mail.outbox.workers}") int workerCount,
+                          @Value("${mail.outbox.batch-size}") int batchSize,
+                          @Value("${mail.outbox.poll-interval-ms}") long pollIntervalMs,
+                          @Value("${mail.outbox.lease-ms}") long leaseMs,
+                          @Value("${mail.outbox.max-attempts}") int maxAttempts,
+                          @Value("${mail.outbox.backoff-ms}") long backoffMs,
+                          @Value("${mail.outbox.max-backoff-ms}") long maxBackoffMs) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.javaMailSender = javaMailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.from = from;
+        this.workerCount = Math.max(1, workerCount);
+        this.batchSize = Math.max(1, batchSize);
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+        this.leaseMs = leaseMs;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+
+        this.sent = Counter.builder("mail.outbox.sent").register(meterRegistry);
+        this.retried = Counter.builder("mail.outbox.retried").register(meterRegistry);
+        this.abandoned = Counter.builder("mail.outbox.abandoned").register(meterRegistry);
+        this.sendSuccess = sendTimer(meterRegistry, "success");
+        this.sendFailure = sendTimer(meterRegistry, "failure");
+        this.deliveryDelay = Timer.builder("mail.outbox.delivery.delay")
+                .description("Time from queueing a mail to its delivery, retries included")
+                .register(meterRegistry);
+    }
+
+    private static Timer sendTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("mail.send")
+                .description("Time spent sending one batch over SMTP")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    // Lets an idle worker pick up freshly queued mail without waiting for the next poll
+    public void wakeUp() {
+        if (!workers.isEmpty()) {
+            LockSupport.unpark(workers.get(ThreadLocalRandom.current().nextInt(workers.size())));
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            int dispatched;
+            try {
+                dispatched = dispatchBatch();
+            } catch (RuntimeException e) {
+                log.warn("Mail outbox dispatch failed", e);
+                dispatched = 0;
+            }
+            if (dispatched < batchSize && running) {
+                LockSupport.parkNanos(pollIntervalNanos);
+            }
+        }
+    }
+
+    int dispatchBatch() {
+        List<MailOutbox> claimed = claim();
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        Map<MimeMessage, MailOutbox> byMessage = new IdentityHashMap<>();
+        Map<MailOutbox, String> failures = new IdentityHashMap<>();
+        for (MailOutbox mail : claimed) {
+            try {
+                byMessage.put(toMimeMessage(mail), mail);
+            } catch (MessagingException e) {
+//                A message that cannot be built will not build on retry either
+                mail.setAttempts(maxAttempts);
+                failures.put(mail, describe(e));
+            }
+        }
+
+        if (!byMessage.isEmpty()) {
+            long start = System.nanoTime();
+            try {
+                javaMailSender.send(byMessage.keySet().toArray(MimeMessage[]::new));
+                sendSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (MailSendException e) {
+                sendFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (e.getFailedMessages().isEmpty()) {
+                    byMessage.values().forEach(mail -> failures.put(mail, describe(e)));
+                } else {
+                    e.getFailedMessages().forEach((message, cause) ->
+                            failures.put(byMessage.get(message), describe(cause)));
+                }
+            } catch (MailException e) {
+                sendFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                byMessage.values().forEach(mail -> failures.put(mail, describe(e)));
+            }
+        }
+
+        complete(claimed, failures);
+        return claimed.size();
+    }
+
+    private List<MailOutbox> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<MailOutbox> due = mailOutboxRepository.lockDue(now, batchSize);
+            for (MailOutbox mail : due) {
+                mail.setAttempts(mail.getAttempts() + 1);
+                mail.setNextAttemptAt(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs)));
+            }
+            return due;
+        });
+    }
+
+    private void complete(List<MailOutbox> claimed, Map<MailOutbox, String> failures) {
+        List<Long> delivered = new ArrayList<>();
+        List<MailOutbox> failed = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (MailOutbox mail : claimed) {
+            String error = failures.get(mail);
+            if (error == null) {
+                delivered.add(mail.getId());
+                if (mail.getCreatedDate() != null) {
+                    deliveryDelay.record(Duration.between(mail.getCreatedDate(), now));
+                }
+                continue;
+            }
+            mail.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            if (mail.getAttempts() >= maxAttempts) {
+                mail.setStatus(MailOutbox.Status.FAILED);
+                abandoned.increment();
+                log.warn("Giving up on mail {} to {} after {} attempts: {}", mail.getId(), mail.getRecipient(), mail.getAttempts(), error);
+            } else {
+                mail.setNextAttemptAt(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(backoff(mail.getAttempts()))));
+                retried.increment();
+            }
+            failed.add(mail);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!delivered.isEmpty()) {
+                mailOutboxRepository.deleteAllByIdInBatch(delivered);
+            }
+            mailOutboxRepository.saveAll(failed);
+        });
+        sent.increment(delivered.size());
+    }
+
+    private static String describe(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+    }
+
+    // Doubles per attempt up to the cap, with up to 20% jitter so retries spread out
+    private long backoff(int attempts) {
+        long delay = Math.min(maxBackoffMs, backoffMs << Math.min(attempts - 1, 20));
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    private MimeMessage toMimeMessage(MailOutbox mail) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+        helper.setTo(mail.getRecipient());
+        helper.setFrom(from);
+        helper.setSubject(mail.getSubject());
+        if (mail.getHtmlBody() != null && mail.getTextBody() != null) {
+            helper.setText(mail.getTextBody(), mail.getHtmlBody());
+        } else if (mail.getHtmlBody() != null) {
+            helper.setText(mail.getHtmlBody(), true);
+        } else {
+            helper.setText(mail.getTextBody() == null ? "" : mail.getTextBody());
+        }
+        return mimeMessage;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread thread = new Thread(this::dispatchLoop, "mail-dispatcher-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(thread);
+        }
+    }
+
+    // Undelivered rows simply stay in the outbox for the next start
+    @Override
+    public void stop() {
+        running = false;
+        for (Thread thread : workers) {
+            LockSupport.unpark(thread);
+        }
+        for (Thread thread : workers) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,75 @@
+package com.url.shortener.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// A template split once into literal text and {{name}} placeholders, so rendering is a
+// single pass of appends into a pre-sized builder. Values are HTML-escaped for HTML
+// templates.
+public final class MailTemplate {
+
+    private final String[] literals;
+    private final String[] placeholders;
+    private final boolean html;
+    private final int literalLength;
+
+    private MailTemplate(List<String> literals, List<String> placeholders, boolean html) {
+        this.literals = literals.toArray(String[]::new);
+        this.placeholders = placeholders.toArray(String[]::new);
+        this.html = html;
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    public static MailTemplate compile(String source, boolean html) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int open = source.indexOf("{{", from);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open);
+            }
+            literals.add(source.substring(from, open));
+            placeholders.add(source.substring(open + 2, close).trim());
+            from = close + 2;
+        }
+        literals.add(source.substring(from));
+        return new MailTemplate(literals, placeholders, html);
+    }
+
+    public String render(Map<String, ?> values) {
+        StringBuilder out = new StringBuilder(literalLength + 32 * placeholders.length);
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            Object value = values.get(placeholders[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("No value for placeholder " + placeholders[i]);
+            }
+            if (html) {
+                appendEscaped(out, value.toString());
+            } else {
+                out.append(value);
+            }
+        }
+        return out.append(literals[placeholders.length]).toString();
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
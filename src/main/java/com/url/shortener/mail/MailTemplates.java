@@ -0,0 +1,33 @@
+package com.url.shortener.mail;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compiled mail templates from classpath:templates/mail, keyed by file name. Each file
+// is read and compiled once.
+@Component
+public class MailTemplates {
+
+    private static final String LOCATION = "templates/mail/";
+
+    private final ConcurrentHashMap<String, MailTemplate> templates = new ConcurrentHashMap<>();
+
+    public MailTemplate get(String name) {
+        return templates.computeIfAbsent(name, MailTemplates::load);
+    }
+
+    private static MailTemplate load(String name) {
+        try (InputStream in = new ClassPathResource(LOCATION + name).getInputStream()) {
+            String source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return MailTemplate.compile(source, name.endsWith(".html"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load mail template " + name, e);
+        }
+    }
+}
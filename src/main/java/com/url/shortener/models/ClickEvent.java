@@ -7,10 +7,15 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
+@Table(indexes = {
+        @Index(columnList = "url_mapping_id, click_date"),
+        @Index(columnList = "click_date")
+})
 public class ClickEvent {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+    @Column(name = "click_date")
     private LocalDateTime clickDate;
 
     @ManyToOne
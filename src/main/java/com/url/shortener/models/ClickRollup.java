@@ -0,0 +1,26 @@
+package com.url.shortener.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Clicks per link per day, kept up to date by the click writers
+@Entity
+@Data
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"url_mapping_id", "click_day"}))
+public class ClickRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "click_day", nullable = false)
+    private LocalDate clickDay;
+
+    @Column(nullable = false)
+    private long clickCount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "url_mapping_id", nullable = false)
+    private UrlMapping urlMapping;
+}
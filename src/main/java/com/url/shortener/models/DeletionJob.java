@@ -0,0 +1,48 @@
+package com.url.shortener.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Background removal of a closed account: its links are tombstoned, then purged with
+// their click data chunk by chunk, and finally the user row itself is deleted. The
+// counters are updated after every chunk so clients can follow the progress.
+@Entity
+@Data
+@Table(indexes = @Index(columnList = "status, created_date"))
+public class DeletionJob {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        DONE
+    }
+
+    // Random, so the id can be handed out as the handle for the progress endpoint
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    private long mappingsTombstoned;
+    private long mappingsDeleted;
+    private long clickEventsDeleted;
+
+    @Column(name = "created_date", nullable = false)
+    private LocalDateTime createdDate;
+    private LocalDateTime updatedDate;
+    private LocalDateTime completedDate;
+    // A worker owns the job until then; an expired lease lets another node take over
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+    @Column(length = 500)
+    private String lastError;
+}
@@ -23,7 +23,7 @@ public class ForgotPassword {
     private Date expirationTime;
 
     @OneToOne
-    @JoinColumn(name = "user_id", referencedColumnName = "id")
+    @JoinColumn(name = "user_id", referencedColumnName = "id", unique = true)
     private User user;
 
     @Column(nullable = false)
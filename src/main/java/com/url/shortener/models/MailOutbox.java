@@ -0,0 +1,43 @@
+package com.url.shortener.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// A queued outgoing email. Rows are deleted once delivered; FAILED rows ran out of
+// attempts and are kept for inspection.
+@Entity
+@Data
+@Table(indexes = @Index(columnList = "status, next_attempt_at"))
+public class MailOutbox {
+
+    public enum Status {
+        PENDING,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+    private String subject;
+
+    @Column(columnDefinition = "text")
+    private String textBody;
+    @Column(columnDefinition = "text")
+    private String htmlBody;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+    private int attempts = 0;
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdDate;
+
+    @Column(length = 500)
+    private String lastError;
+}
@@ -8,14 +8,33 @@ import java.util.List;
 
 @Entity
 @Data
+@Table(indexes = {
+        @Index(columnList = "user_id, created_date, id"),
+        @Index(columnList = "user_id, url_hash"),
+        @Index(columnList = "deleted_at"),
+        @Index(columnList = "created_date, id")
+})
 public class UrlMapping {
+    public static final int ALLOCATION_SIZE = 50;
+
+    // Pooled sequence rather than IDENTITY so Hibernate can batch inserts; each
+    // nextval reserves ALLOCATION_SIZE ids (see UrlMappingSequenceAligner)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "url_mapping_seq")
+    @SequenceGenerator(name = "url_mapping_seq", sequenceName = "url_mapping_seq", allocationSize = ALLOCATION_SIZE)
     private Long id;
     private String originalUrl;
+    // UrlNormalizer.hash of originalUrl, for finding repeats of the same URL per user
+    @Column(name = "url_hash", length = 16)
+    private byte[] urlHash;
+    @Column(unique = true)
     private String shortUrl;
     private int clickCount = 0;
+    @Column(name = "created_date")
     private LocalDateTime createdDate;
+    // Tombstone: set when the link is deleted; the row and its clicks are purged later
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
 
     @ManyToOne
     @JoinColumn(name = "user_id")
@@ -23,4 +42,7 @@ public class UrlMapping {
 
     @OneToMany(mappedBy = "urlMapping", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ClickEvent> clickEvents;
+
+    @OneToMany(mappedBy = "urlMapping", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<ClickRollup> clickRollups;
 }
\ No newline at end of file
@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Data
 @Table(name = "users")
@@ -26,4 +28,11 @@ public class User {
     private ForgotPassword forgotPassword;
 
     private String role = "ROLE_USER";
+
+    // Embedded in issued JWTs; bumping it revokes every token issued before
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int securityVersion = 0;
+
+    // Tombstone: the account is closed and a DeletionJob is removing its data
+    private LocalDateTime deletedAt;
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.url.shortener.otp;
+
+import com.url.shortener.models.ForgotPassword;
+import com.url.shortener.repository.ForgotPasswordRepository;
+import com.url.shortener.repository.UserRepository;
+import jakarta.transaction.Transactional;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+// Keeps the forgot_password table in step with OtpStore
+@Component
+@ConditionalOnProperty(name = "otp.persistence.enabled", havingValue = "true")
+@AllArgsConstructor
+public class JpaOtpPersistence implements OtpPersistence {
+
+    private ForgotPasswordRepository forgotPasswordRepository;
+    private UserRepository userRepository;
+
+    @Override
+    public Optional<OtpEntry> load(Long userId) {
+        return forgotPasswordRepository.findByUserId(userId).map(JpaOtpPersistence::toEntry);
+    }
+
+    @Override
+    @Transactional
+    public void save(Long userId, OtpEntry entry) {
+        forgotPasswordRepository.deleteByUserId(userId);
+        forgotPasswordRepository.save(ForgotPassword.builder()
+                .otp(entry.otp())
+                .expirationTime(new Date(entry.expiresAtMs()))
+                .user(userRepository.getReferenceById(userId))
+                .verified(entry.verified())
+                .build());
+    }
+
+    @Override
+    public void markVerified(Long userId) {
+        forgotPasswordRepository.markVerifiedByUserId(userId);
+    }
+
+    @Override
+    public void delete(Long userId) {
+        forgotPasswordRepository.deleteByUserId(userId);
+    }
+
+    @Override
+    public void deleteExpired(long nowMs) {
+        forgotPasswordRepository.deleteExpired(new Date(nowMs));
+    }
+
+    @Override
+    public Map<Long, OtpEntry> loadActive(long nowMs) {
+        return forgotPasswordRepository.findActive(new Date(nowMs)).stream()
+                .collect(Collectors.toMap(fp -> fp.getUser().getId(), JpaOtpPersistence::toEntry));
+    }
+
+    private static OtpEntry toEntry(ForgotPassword fp) {
+        return new OtpEntry(fp.getOtp(), fp.getExpirationTime().getTime(), fp.isVerified());
+    }
+}
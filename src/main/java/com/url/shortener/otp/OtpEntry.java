@@ -0,0 +1,12 @@
+package com.url.shortener.otp;
+
+public record OtpEntry(int otp, long expiresAtMs, boolean verified) {
+
+    public boolean isExpired(long nowMs) {
+        return expiresAtMs <= nowMs;
+    }
+
+    OtpEntry markVerified() {
+        return new OtpEntry(otp, expiresAtMs, true);
+    }
+}
@@ -0,0 +1,21 @@
+package com.url.shortener.otp;
+
+import java.util.Map;
+import java.util.Optional;
+
+// Write-through target for OtpStore. The table is what every node reads, so any node
+// can serve each step of a reset, and issued OTPs survive a restart.
+public interface OtpPersistence {
+
+    Optional<OtpEntry> load(Long userId);
+
+    void save(Long userId, OtpEntry entry);
+
+    void markVerified(Long userId);
+
+    void delete(Long userId);
+
+    void deleteExpired(long nowMs);
+
+    Map<Long, OtpEntry> loadActive(long nowMs);
+}
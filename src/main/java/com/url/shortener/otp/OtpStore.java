@@ -0,0 +1,183 @@
+package com.url.shortener.otp;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Password reset OTPs, one per user, evicted by a timing wheel as soon as they expire.
+// When persistence is enabled the forgot_password table is authoritative: issue, verify
+// and find read the user's row, so each step of a reset may land on any replica, and the
+// memory map only tracks the OTPs this node issued so the wheel deletes their rows on
+// expiry. Without persistence the map is the store, which only suits a single node.
+// An OTP is only published once its row and the mail that delivers it have committed
+// together; the unique user_id of forgot_password keeps two nodes from both issuing one.
+@Slf4j
+@Component
+public class OtpStore implements SmartLifecycle {
+
+    public enum Verification {
+        VERIFIED,
+        EXPIRED,
+        INVALID
+    }
+
+    private final ConcurrentHashMap<Long, OtpEntry> entries = new ConcurrentHashMap<>();
+    // Users with an OTP being issued, so concurrent requests cannot both send one
+    private final Set<Long> issuing = ConcurrentHashMap.newKeySet();
+    private final TimingWheel<Long> wheel;
+    private final OtpPersistence persistence;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMs;
+    private volatile boolean running;
+
+    public OtpStore(Optional<OtpPersistence> persistence,
+                    PlatformTransactionManager transactionManager,
+                    MeterRegistry meterRegistry,
+                    @Value("${otp.ttl-ms}") long ttlMs,
+                    @Value("${otp.wheel.size}") int wheelSize,
+                    @Value("${otp.wheel.tick-ms}") long tickMs) {
+        this.persistence = persistence.orElse(null);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlMs = ttlMs;
+        this.wheel = new TimingWheel<>(wheelSize, tickMs, System.currentTimeMillis());
+        Gauge.builder("otp.store.size", entries, Map::size).register(meterRegistry);
+    }
+
+    // Reloads live OTPs at startup rather than on construction, so the context can be
+    // refreshed without a database (AOT processing, the AppCDS training run). With
+    // persistence the reloaded entries only feed the wheel that deletes expired rows.
+    @Override
+    public void start() {
+        if (persistence != null) {
+            long now = System.currentTimeMillis();
+            persistence.deleteExpired(now);
+            persistence.loadActive(now).forEach((userId, entry) -> {
+                entries.put(userId, entry);
+                wheel.schedule(userId, entry.expiresAtMs());
+            });
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before the web server accepts the first reset request
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+
+    // Saves the OTP and runs send, which queues its mail, in one transaction; the OTP can
+    // be verified once both have committed. If either fails nothing is kept and the
+    // exception propagates. Returns false while the user still has an unexpired OTP.
+    public boolean issue(Long userId, int otp, Runnable send) {
+        if (!issuing.add(userId)) {
+            return false;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            OtpEntry existing = current(userId);
+            if (existing != null && !existing.isExpired(now)) {
+                return false;
+            }
+            OtpEntry issued = new OtpEntry(otp, now + ttlMs, false);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (persistence != null) {
+                        persistence.save(userId, issued);
+                    }
+                    send.run();
+                });
+            } catch (DataIntegrityViolationException e) {
+//                Another node inserted the user's row first; its OTP is the one sent
+                return false;
+            }
+            entries.put(userId, issued);
+            wheel.schedule(userId, issued.expiresAtMs());
+            return true;
+        } finally {
+            issuing.remove(userId);
+        }
+    }
+
+    public Verification verify(Long userId, int otp) {
+        OtpEntry entry = current(userId);
+        if (entry == null || entry.otp() != otp) {
+            return Verification.INVALID;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            remove(userId);
+            return Verification.EXPIRED;
+        }
+        if (!entry.verified()) {
+            entries.replace(userId, entry, entry.markVerified());
+            if (persistence != null) {
+                persistence.markVerified(userId);
+            }
+        }
+        return Verification.VERIFIED;
+    }
+
+    // May still return an expired entry the wheel has not reached yet; check isExpired
+    public Optional<OtpEntry> find(Long userId) {
+        return Optional.ofNullable(current(userId));
+    }
+
+    // Also deletes the row when the OTP was issued or reloaded by another node
+    public void remove(Long userId) {
+        entries.remove(userId);
+        if (persistence != null) {
+            persistence.delete(userId);
+        }
+    }
+
+    // The user's OTP as every node sees it
+    private OtpEntry current(Long userId) {
+        if (persistence == null) {
+            return entries.get(userId);
+        }
+        return persistence.load(userId).orElse(null);
+    }
+
+    // Rows are deleted by expiry time rather than by user, so a newer OTP another node
+    // issued for the same user is left alone
+    @Scheduled(fixedRateString = "${otp.wheel.tick-ms}")
+    public void expire() {
+        long now = System.currentTimeMillis();
+        AtomicBoolean expired = new AtomicBoolean();
+        wheel.advance(now, userId -> {
+            OtpEntry entry = entries.get(userId);
+            if (entry != null && entry.isExpired(now) && entries.remove(userId, entry)) {
+                expired.set(true);
+            }
+        });
+        if (expired.get() && persistence != null) {
+            try {
+                persistence.deleteExpired(now);
+            } catch (RuntimeException e) {
+                log.warn("Failed to delete expired OTPs", e);
+            }
+        }
+    }
+}
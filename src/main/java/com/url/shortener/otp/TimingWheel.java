@@ -0,0 +1,58 @@
+package com.url.shortener.otp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Hashed timing wheel: a deadline hashes to the bucket of its tick, so scheduling is
+// O(1) and each tick only looks at one bucket. Deadlines further out than one turn of
+// the wheel share buckets and simply stay put until their own turn comes round.
+// schedule may be called from any thread; advance from one thread at a time.
+final class TimingWheel<K> {
+
+    private final Map<K, Long>[] buckets;
+    private final int mask;
+    private final long tickMs;
+    private long lastTick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(int size, long tickMs, long nowMs) {
+        int buckets = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+        this.buckets = new Map[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.buckets[i] = new ConcurrentHashMap<>();
+        }
+        this.mask = buckets - 1;
+        this.tickMs = tickMs;
+        this.lastTick = nowMs / tickMs;
+    }
+
+    // A key scheduled again keeps its older slot too; the owner re-checks on expiry
+    void schedule(K key, long deadlineMs) {
+        long tick = (deadlineMs + tickMs - 1) / tickMs;
+        buckets[(int) (tick & mask)].merge(key, deadlineMs, Math::max);
+    }
+
+    // Fires every bucket between the last advance and now, handing due keys to expired
+    void advance(long nowMs, Consumer<K> expired) {
+        long nowTick = nowMs / tickMs;
+        long from = Math.max(lastTick + 1, nowTick - mask);
+        for (long tick = from; tick <= nowTick; tick++) {
+            Map<K, Long> bucket = buckets[(int) (tick & mask)];
+            bucket.forEach((key, deadline) -> {
+                if (deadline <= nowMs && bucket.remove(key, deadline)) {
+                    expired.accept(key);
+                }
+            });
+        }
+        lastTick = Math.max(lastTick, nowTick);
+    }
+
+    int size() {
+        int size = 0;
+        for (Map<K, Long> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,112 @@
+package com.url.shortener.reactive;
+
+import com.url.shortener.dtos.RedirectTarget;
+import com.url.shortener.security.ratelimit.RateLimiter;
+import com.url.shortener.service.RedirectMetrics;
+import com.url.shortener.service.ShortUrlCache;
+import com.url.shortener.service.UrlMappingService;
+import com.url.shortener.shortcode.ShortCodeFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// GET /{shortUrl} on the event loop, with the same steps as RedirectController and
+// UrlMappingService.getOriginalUrl: per-IP rate limit, Bloom filter, ShortUrlCache, then
+// completeRedirect for the metrics and the click. Only a cache miss leaves the thread,
+// as an R2DBC query whose result is put back with the version read before it, so a
+// concurrent invalidation wins. Concurrent misses for one code share a single query.
+// ClickPipeline.record runs on the event loop: use the DROP or SAMPLE backpressure
+// policy with this tier, as BLOCK would park an event-loop thread.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "redirect.reactive.enabled", havingValue = "true")
+public class ReactiveRedirectHandler {
+
+    private final ReactiveUrlMappingLookup lookup;
+    private final ShortUrlCache shortUrlCache;
+    private final ShortCodeFilter shortCodeFilter;
+    private final UrlMappingService urlMappingService;
+    private final RedirectMetrics redirectMetrics;
+    private final RateLimiter rateLimiter;
+    private final Map<String, Mono<Optional<RedirectTarget>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter failures;
+
+    public ReactiveRedirectHandler(ReactiveUrlMappingLookup lookup,
+                                   ShortUrlCache shortUrlCache,
+                                   ShortCodeFilter shortCodeFilter,
+                                   UrlMappingService urlMappingService,
+                                   RedirectMetrics redirectMetrics,
+                                   RateLimiter rateLimiter,
+                                   MeterRegistry meterRegistry) {
+        this.lookup = lookup;
+        this.shortUrlCache = shortUrlCache;
+        this.shortCodeFilter = shortCodeFilter;
+        this.urlMappingService = urlMappingService;
+        this.redirectMetrics = redirectMetrics;
+        this.rateLimiter = rateLimiter;
+        this.failures = Counter.builder("redirect.reactive.failed").register(meterRegistry);
+    }
+
+    public Mono<ServerResponse> redirect(ServerRequest request) {
+        long retryAfterSeconds = rateLimiter.tryAcquire(rateLimiter.getRedirectPerIp(), clientIp(request));
+        if (retryAfterSeconds > 0) {
+            return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .bodyValue("Too many requests, retry in " + retryAfterSeconds + "s");
+        }
+
+        String shortUrl = request.pathVariable("shortUrl");
+        long start = System.nanoTime();
+//        Codes that were never issued are answered from memory
+        if (!shortCodeFilter.mightContain(shortUrl)) {
+            redirectMetrics.recordLookup(start, false);
+            return ServerResponse.notFound().build();
+        }
+        Optional<RedirectTarget> cached = shortUrlCache.getIfPresent(shortUrl);
+        Mono<Optional<RedirectTarget>> target = cached != null ? Mono.just(cached) : load(shortUrl);
+        return target
+                .flatMap(found -> respond(urlMappingService.completeRedirect(start, found.orElse(null))))
+                .onErrorResume(e -> {
+                    failures.increment();
+                    log.debug("Reactive redirect lookup failed for {}", shortUrl, e);
+                    return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+                });
+    }
+
+    private Mono<Optional<RedirectTarget>> load(String shortUrl) {
+        return inFlight.computeIfAbsent(shortUrl, key -> {
+            long version = shortUrlCache.version();
+            return lookup.find(key)
+                    .doOnNext(found -> shortUrlCache.put(key, found, version))
+                    .doFinally(signal -> inFlight.remove(key))
+                    .cache();
+        });
+    }
+
+    private static Mono<ServerResponse> respond(RedirectTarget target) {
+        if (target == null) {
+            return ServerResponse.notFound().build();
+        }
+        return ServerResponse.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, target.originalUrl())
+                .build();
+    }
+
+    // The remote address; rewritten from the Forwarded headers when redirect.reactive.forward-headers is set
+    private static String clientIp(ServerRequest request) {
+        return request.remoteAddress()
+                .map(address -> address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString())
+                .orElse("unknown");
+    }
+}
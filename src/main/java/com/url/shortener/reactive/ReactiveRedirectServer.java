@@ -0,0 +1,106 @@
+package com.url.shortener.reactive;
+
+import com.url.shortener.click.BackpressurePolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.adapter.ForwardedHeaderTransformer;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+// Second HTTP server for the redirect traffic, next to the MVC one: a functional router
+// with the single route GET /{shortUrl} on Reactor Netty, served by event-loop-threads
+// threads (0 means one per core). The MVC server keeps everything else, including its
+// own /{shortUrl}, so the load balancer decides which tier takes redirects.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "redirect.reactive.enabled", havingValue = "true")
+public class ReactiveRedirectServer implements SmartLifecycle {
+
+    private final ReactiveRedirectHandler handler;
+    private final int port;
+    private final int eventLoopThreads;
+    private final boolean forwardHeaders;
+    private final long shutdownTimeoutMs;
+    private final BackpressurePolicy backpressure;
+
+    private volatile LoopResources loops;
+    private volatile DisposableServer server;
+
+    public ReactiveRedirectServer(ReactiveRedirectHandler handler,
+                                  @Value("${redirect.reactive.port}") int port,
+                                  @Value("${redirect.reactive.event-loop-threads}") int eventLoopThreads,
+                                  @Value("${redirect.reactive.forward-headers}") boolean forwardHeaders,
+                                  @Value("${redirect.reactive.shutdown-timeout-ms}") long shutdownTimeoutMs,
+                                  @Value("${click.pipeline.backpressure}") BackpressurePolicy backpressure) {
+        this.handler = handler;
+        this.port = port;
+        this.eventLoopThreads = eventLoopThreads > 0 ? eventLoopThreads : LoopResources.DEFAULT_IO_WORKER_COUNT;
+        this.forwardHeaders = forwardHeaders;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.backpressure = backpressure;
+    }
+
+    @Override
+    public void start() {
+        if (backpressure == BackpressurePolicy.BLOCK) {
+            log.warn("click.pipeline.backpressure=BLOCK parks event-loop threads of the reactive redirect tier when the pipeline is full");
+        }
+        RouterFunction<ServerResponse> routes = RouterFunctions.route(RequestPredicates.GET("/{shortUrl}"), handler::redirect);
+        WebHttpHandlerBuilder httpHandler = WebHttpHandlerBuilder.webHandler(RouterFunctions.toWebHandler(routes));
+        if (forwardHeaders) {
+            httpHandler.forwardedHeaderTransformer(new ForwardedHeaderTransformer());
+        }
+
+        loops = LoopResources.create("redirect", eventLoopThreads, true);
+        server = HttpServer.create()
+                .port(port)
+                .runOn(loops)
+//                One uri tag for every code keeps the meter count bounded
+                .metrics(true, uri -> "/{shortUrl}")
+                .handle(new ReactorHttpHandlerAdapter(httpHandler.build()))
+                .bindNow();
+        log.info("Reactive redirect tier listening on port {} with {} event-loop threads", server.port(), eventLoopThreads);
+    }
+
+    // Lets requests in flight finish for up to shutdown-timeout-ms
+    @Override
+    public void stop() {
+        DisposableServer current = server;
+        if (current != null) {
+            try {
+                current.disposeNow(Duration.ofMillis(shutdownTimeoutMs));
+            } catch (IllegalStateException e) {
+                log.warn("Reactive redirect tier did not stop within {} ms", shutdownTimeoutMs);
+            }
+        }
+        LoopResources currentLoops = loops;
+        if (currentLoops != null) {
+            currentLoops.disposeLater().block(Duration.ofMillis(shutdownTimeoutMs));
+        }
+        server = null;
+        loops = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    // Starts with the MVC web server, after the caches are warmed and the click pipeline runs
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+}
@@ -0,0 +1,82 @@
+package com.url.shortener.reactive;
+
+import com.url.shortener.dtos.RedirectTarget;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// The redirect lookup of UrlMappingRepository.findRedirectTargetByShortUrl over R2DBC, so
+// a cache miss does not hold an event-loop thread while Postgres answers. The pool is
+// separate from Hikari and sized on its own: a few connections serve many lookups, as
+// none is held between a query and its response. Without redirect.reactive.r2dbc-url
+// the JDBC URL is reused with the r2dbc scheme.
+@Component
+@ConditionalOnProperty(name = "redirect.reactive.enabled", havingValue = "true")
+public class ReactiveUrlMappingLookup {
+
+    private static final String FIND_TARGET =
+            "select id, original_url from url_mapping where short_url = $1 and deleted_at is null";
+
+    private final ConnectionPool pool;
+
+    public ReactiveUrlMappingLookup(MeterRegistry meterRegistry,
+                                    @Value("${redirect.reactive.r2dbc-url}") String r2dbcUrl,
+                                    @Value("${spring.datasource.url}") String jdbcUrl,
+                                    @Value("${spring.datasource.username}") String username,
+                                    @Value("${spring.datasource.password}") String password,
+                                    @Value("${redirect.reactive.pool-size}") int poolSize,
+                                    @Value("${redirect.reactive.acquire-timeout-ms}") long acquireTimeoutMs,
+                                    @Value("${spring.datasource.hikari.idle-timeout}") long idleTimeoutMs,
+                                    @Value("${spring.datasource.hikari.max-lifetime}") long maxLifetimeMs) {
+        String url = StringUtils.hasText(r2dbcUrl) ? r2dbcUrl : jdbcUrl.replaceFirst("^jdbc:", "r2dbc:");
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("redirect")
+                .initialSize(0)
+                .maxSize(Math.max(1, poolSize))
+                .maxAcquireTime(Duration.ofMillis(acquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(idleTimeoutMs))
+                .maxLifeTime(Duration.ofMillis(maxLifetimeMs))
+                .build());
+
+        pool.getMetrics().ifPresent(metrics -> {
+            Gauge.builder("redirect.reactive.pool.acquired", metrics, PoolMetrics::acquiredSize).register(meterRegistry);
+            Gauge.builder("redirect.reactive.pool.pending", metrics, PoolMetrics::pendingAcquireSize).register(meterRegistry);
+        });
+    }
+
+    // Emits Optional.empty() for an unknown or deleted code
+    public Mono<Optional<RedirectTarget>> find(String shortUrl) {
+        return Mono.usingWhen(pool.create(),
+                        connection -> Flux.from(connection.createStatement(FIND_TARGET).bind("$1", shortUrl).execute())
+                                .flatMap(result -> result.map((row, metadata) ->
+                                        new RedirectTarget(row.get(0, Long.class), row.get(1, String.class))))
+                                .next(),
+                        Connection::close)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.dispose();
+    }
+}
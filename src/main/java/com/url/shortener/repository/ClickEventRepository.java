@@ -1,8 +1,9 @@
 package com.url.shortener.repository;
 
+import com.url.shortener.dtos.DailyClickCount;
 import com.url.shortener.models.ClickEvent;
-import com.url.shortener.models.UrlMapping;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -10,7 +11,15 @@ import java.util.List;
 
 @Repository
 public interface ClickEventRepository  extends JpaRepository<ClickEvent, Long> {
-    List<ClickEvent> findByUrlMappingAndClickDateBetween(UrlMapping mapping, LocalDateTime startDate, LocalDateTime endDate);
-    List<ClickEvent> findByUrlMappingInAndClickDateBetween(List<UrlMapping> urlMappings, LocalDateTime startDate, LocalDateTime endDate);
+
+    @Query("select cast(c.clickDate as LocalDate) as clickDate, count(c) as clicks from ClickEvent c " +
+            "where c.urlMapping.id = ?1 and c.clickDate between ?2 and ?3 " +
+            "group by cast(c.clickDate as LocalDate)")
+    List<DailyClickCount> countDailyClicks(Long urlMappingId, LocalDateTime startDate, LocalDateTime endDate);
+
+    @Query("select cast(c.clickDate as LocalDate) as clickDate, count(c) as clicks from ClickEvent c join c.urlMapping m " +
+            "where m.user.id = ?1 and c.clickDate >= ?2 and c.clickDate < ?3 " +
+            "group by cast(c.clickDate as LocalDate)")
+    List<DailyClickCount> countDailyClicksByUser(Long userId, LocalDateTime startDate, LocalDateTime endDate);
 
 }
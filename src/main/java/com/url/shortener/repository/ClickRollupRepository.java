@@ -0,0 +1,22 @@
+package com.url.shortener.repository;
+
+import com.url.shortener.dtos.DailyClickCount;
+import com.url.shortener.models.ClickRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ClickRollupRepository extends JpaRepository<ClickRollup, Long> {
+
+    @Query("select r.clickDay as clickDate, r.clickCount as clicks from ClickRollup r " +
+            "where r.urlMapping.id = ?1 and r.clickDay between ?2 and ?3 order by r.clickDay")
+    List<DailyClickCount> findDailyClicks(Long urlMappingId, LocalDate start, LocalDate end);
+
+    @Query("select r.clickDay as clickDate, sum(r.clickCount) as clicks from ClickRollup r " +
+            "where r.urlMapping.user.id = ?1 and r.clickDay between ?2 and ?3 group by r.clickDay")
+    List<DailyClickCount> findDailyClicksByUser(Long userId, LocalDate start, LocalDate end);
+}
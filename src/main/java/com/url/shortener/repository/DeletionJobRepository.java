@@ -0,0 +1,27 @@
+package com.url.shortener.repository;
+
+import com.url.shortener.models.DeletionJob;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface DeletionJobRepository extends JpaRepository<DeletionJob, UUID> {
+
+    // Oldest unfinished job whose lease has run out; jobs locked by another worker are skipped
+    @Query(value = "select * from deletion_job where status in ('PENDING', 'RUNNING') " +
+            "and (lease_until is null or lease_until < ?1) " +
+            "order by created_date limit 1 for update skip locked", nativeQuery = true)
+    Optional<DeletionJob> lockNext(LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from DeletionJob j where j.status = com.url.shortener.models.DeletionJob.Status.DONE and j.completedDate < ?1")
+    int deleteCompletedBefore(LocalDateTime cutoff);
+}
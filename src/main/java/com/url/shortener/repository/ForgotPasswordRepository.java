@@ -1,25 +1,35 @@
 package com.url.shortener.repository;
 
 import com.url.shortener.models.ForgotPassword;
-import com.url.shortener.models.User;
 import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 public interface ForgotPasswordRepository extends JpaRepository<ForgotPassword, Integer> {
 
-    @Query("select fp from ForgotPassword fp where fp.otp = ?1 and fp.user = ?2")
-    Optional<ForgotPassword> findByOtpAndUser(Integer otp, User user);
+    @Query("select fp from ForgotPassword fp join fetch fp.user where fp.expirationTime > ?1")
+    List<ForgotPassword> findActive(Date now);
 
-    ForgotPassword findByUser(User user);
+    @Query("select fp from ForgotPassword fp where fp.user.id = ?1")
+    Optional<ForgotPassword> findByUserId(Long userId);
 
     @Modifying
-    @Query("DELETE FROM ForgotPassword fp WHERE fp.fpid = ?1")
+    @Query("UPDATE ForgotPassword fp SET fp.verified = true WHERE fp.user.id = ?1")
     @Transactional
-    void deleteByFpid(Integer fpid);
+    void markVerifiedByUserId(Long userId);
 
+    @Modifying
+    @Query("DELETE FROM ForgotPassword fp WHERE fp.user.id = ?1")
+    @Transactional
+    void deleteByUserId(Long userId);
 
+    @Modifying
+    @Query("DELETE FROM ForgotPassword fp WHERE fp.expirationTime <= ?1")
+    @Transactional
+    void deleteExpired(Date now);
 }
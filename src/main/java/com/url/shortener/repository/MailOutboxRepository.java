@@ -0,0 +1,18 @@
+package com.url.shortener.repository;
+
+import com.url.shortener.models.MailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    // Rows locked by another dispatcher are skipped rather than waited for
+    @Query(value = "select * from mail_outbox where status = 'PENDING' and next_attempt_at <= ?1 " +
+            "order by next_attempt_at limit ?2 for update skip locked", nativeQuery = true)
+    List<MailOutbox> lockDue(LocalDateTime now, int limit);
+}
@@ -1,16 +1,60 @@
 package com.url.shortener.repository;
 
+import com.url.shortener.dtos.RedirectTarget;
+import com.url.shortener.dtos.UrlMappingDto;
 import com.url.shortener.models.UrlMapping;
 import com.url.shortener.models.User;
+import org.springframework.data.domain.Pageable;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface UrlMappingRepository extends JpaRepository<UrlMapping,Long> {
+
+    // DTO projection for the dashboard list; filter is a lower-case LIKE pattern escaped with '!'
+    String DTO_PAGE = "select new com.url.shortener.dtos.UrlMappingDto(m.id, m.originalUrl, m.shortUrl, m.clickCount, m.createdDate, u.username) " +
+            "from UrlMapping m join m.user u where u.id = :userId and m.deletedAt is null " +
+            "and (lower(m.originalUrl) like :filter escape '!' or lower(m.shortUrl) like :filter escape '!') ";
+
     UrlMapping findByShortUrl(String shortUrl);
+
+    // Oldest live mapping of the same normalized URL, through the (user_id, url_hash) index
+    Optional<UrlMapping> findFirstByUserIdAndUrlHashAndDeletedAtIsNullOrderByIdAsc(Long userId, byte[] urlHash);
     List<UrlMapping> findByUser(User user);
 
-    void deleteByUserId(Long userId);
+    @Query("select new com.url.shortener.dtos.RedirectTarget(u.id, u.originalUrl) from UrlMapping u where u.shortUrl = ?1 and u.deletedAt is null")
+    Optional<RedirectTarget> findRedirectTargetByShortUrl(String shortUrl);
+
+    @Query("select u.id from UrlMapping u where u.shortUrl = ?1 and u.deletedAt is null")
+    Optional<Long> findIdByShortUrl(String shortUrl);
+
+    @Query("select u.id from UrlMapping u where u.user.id = ?1")
+    List<Long> findIdsByUserId(Long userId);
+
+    @Query(DTO_PAGE + "order by m.createdDate desc, m.id desc")
+    List<UrlMappingDto> findDtoPageNewestFirst(Long userId, String filter, Pageable pageable);
+
+    @Query(DTO_PAGE + "and (m.createdDate < :createdDate or (m.createdDate = :createdDate and m.id < :id)) " +
+            "order by m.createdDate desc, m.id desc")
+    List<UrlMappingDto> findDtoPageNewestFirstAfter(Long userId, String filter, LocalDateTime createdDate, Long id, Pageable pageable);
+
+    @Query(DTO_PAGE + "order by m.createdDate asc, m.id asc")
+    List<UrlMappingDto> findDtoPageOldestFirst(Long userId, String filter, Pageable pageable);
+
+    @Query(DTO_PAGE + "and (m.createdDate > :createdDate or (m.createdDate = :createdDate and m.id > :id)) " +
+            "order by m.createdDate asc, m.id asc")
+    List<UrlMappingDto> findDtoPageOldestFirstAfter(Long userId, String filter, LocalDateTime createdDate, Long id, Pageable pageable);
+
+    // Tombstones the link; DeletionWorker purges the row and its clicks later
+    @Transactional
+    @Modifying
+    @Query("update UrlMapping m set m.deletedAt = ?2 where m.id = ?1 and m.deletedAt is null")
+    int markDeleted(Long id, LocalDateTime deletedAt);
 }
@@ -0,0 +1,56 @@
+package com.url.shortener.repository;
+
+import com.url.shortener.models.UrlMapping;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// url_mapping ids used to come from an identity column. The pooled sequence that
+// replaced it starts at 1, so on startup it is moved past the highest existing id.
+// It only ever moves forward, so nodes starting concurrently are safe. Runs as a
+// lifecycle step rather than in the constructor so the context can be refreshed
+// without a database (AOT processing, the AppCDS training run); by then schema
+// update has already run.
+@Slf4j
+@Component
+public class UrlMappingSequenceAligner implements SmartLifecycle {
+
+    static final String SEQUENCE_NAME = "url_mapping_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean running;
+
+    public UrlMappingSequenceAligner(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void start() {
+        jdbcTemplate.execute("create sequence if not exists " + SEQUENCE_NAME
+                + " start with 1 increment by " + UrlMapping.ALLOCATION_SIZE);
+        Long value = jdbcTemplate.queryForObject(
+                "select setval('" + SEQUENCE_NAME + "', greatest("
+                        + "(select coalesce(max(id), 0) from url_mapping) + " + UrlMapping.ALLOCATION_SIZE + ", "
+                        + "(select last_value from " + SEQUENCE_NAME + ")))",
+                Long.class);
+        log.info("Sequence {} positioned at {}", SEQUENCE_NAME, value);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before the web server accepts the first request that could insert a mapping
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+}
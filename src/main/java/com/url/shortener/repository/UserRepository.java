@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -14,8 +15,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
 
+    @Query("select u.securityVersion from User u where u.id = ?1 and u.deletedAt is null")
+    Optional<Integer> findSecurityVersionById(Long id);
+
     @Transactional
     @Modifying
-    @Query("update User u set u.password = ?2 where u.email = ?1")
+    @Query("update User u set u.password = ?2, u.securityVersion = u.securityVersion + 1 where u.email = ?1")
     void updatePassword(String email, String password);
+
+    // Replaces the hash only if it is still the one that was verified, and keeps tokens valid
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = ?3 where u.username = ?1 and u.password = ?2")
+    int rehashPassword(String username, String oldHash, String newHash);
+
+    // Closes the account and revokes its tokens; the data is removed by a DeletionJob
+    @Transactional
+    @Modifying
+    @Query("update User u set u.deletedAt = ?2, u.securityVersion = u.securityVersion + 1 where u.id = ?1 and u.deletedAt is null")
+    int markDeleted(Long id, LocalDateTime deletedAt);
 }
\ No newline at end of file
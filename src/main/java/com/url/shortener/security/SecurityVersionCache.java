@@ -0,0 +1,45 @@
+package com.url.shortener.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.url.shortener.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Current security version per user, so a token can be checked for revocation without
+// a database round trip on every request. Deleted users resolve to empty.
+@Component
+public class SecurityVersionCache {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Optional<Integer>> versions;
+
+    public SecurityVersionCache(UserRepository userRepository,
+                                @Value("${jwt.version-cache.maximum-size}") long maximumSize,
+                                @Value("${jwt.version-cache.ttl-ms}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+    }
+
+    public boolean isCurrent(Long userId, Integer tokenVersion) {
+        if (tokenVersion == null) {
+            return false;
+        }
+        Optional<Integer> current = versions.get(userId, userRepository::findSecurityVersionById);
+        return current.isPresent() && current.get().equals(tokenVersion);
+    }
+
+    public void invalidate(Long userId) {
+        versions.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        versions.invalidateAll();
+    }
+}
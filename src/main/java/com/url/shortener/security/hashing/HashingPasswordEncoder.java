@@ -0,0 +1,125 @@
+package com.url.shortener.security.hashing;
+
+import com.url.shortener.exceptions.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// BCrypt confined to a fixed pool of platform threads with a short queue, so a login
+// burst can occupy at most that many cores and the rest keep serving redirects. When
+// the queue is full the caller gets a 503 straight away instead of waiting.
+// The cost is calibrated at startup to the target latency unless fixed by
+// password.hashing.strength; it never drops below min-strength. Hashes with a lower
+// cost report upgradeEncoding, so they are re-hashed on the next successful login.
+@Slf4j
+@Component
+public class HashingPasswordEncoder implements PasswordEncoder {
+
+    private static final int CALIBRATION_ROUNDS = 3;
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTime;
+    private final Counter rejected;
+
+    public HashingPasswordEncoder(MeterRegistry meterRegistry,
+                                  @Value("${password.hashing.threads}") int threads,
+                                  @Value("${password.hashing.queue-capacity}") int queueCapacity,
+                                  @Value("${password.hashing.strength}") int strength,
+                                  @Value("${password.hashing.target-ms}") long targetMs,
+                                  @Value("${password.hashing.min-strength}") int minStrength,
+                                  @Value("${password.hashing.max-strength}") int maxStrength) {
+        int cost = strength > 0 ? strength : calibrate(targetMs, minStrength, maxStrength);
+        log.info("Hashing passwords with BCrypt cost {}", cost);
+        this.bcrypt = new BCryptPasswordEncoder(cost);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashTime = Timer.builder("password.hashing.duration").register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected").register(meterRegistry);
+        Gauge.builder("password.hashing.queued", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> bcrypt.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return bcrypt.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> hashTime.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many password checks in progress, please retry shortly");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Each extra cost step doubles the work, so scale from the fastest measured min-strength hash
+    static int calibrate(long targetMs, int minStrength, int maxStrength) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(minStrength);
+        probe.encode("calibration");
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        double ratio = (double) TimeUnit.MILLISECONDS.toNanos(targetMs) / Math.max(1, fastest);
+        int steps = ratio < 1 ? 0 : (int) Math.floor(Math.log(ratio) / Math.log(2));
+        return Math.min(maxStrength, minStrength + steps);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,6 +1,11 @@
 package com.url.shortener.security.jwt;
 
+import com.url.shortener.security.SecurityVersionCache;
+import com.url.shortener.service.UserDetailsImpl;
 import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -16,6 +21,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -26,9 +32,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private SecurityVersionCache securityVersions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${frontend.url}")
     private String frontend_Url;
 
+    private Timer verifiedTime;
+    private Timer rejectedTime;
+
+    @PostConstruct
+    void initMetrics() {
+        verifiedTime = verifyTimer("valid");
+        rejectedTime = verifyTimer("invalid");
+    }
+
+    private Timer verifyTimer(String result) {
+        return Timer.builder("jwt.verify")
+                .description("Time spent verifying the JWT of a request")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
     //Setting the header
     private void setCorsHeaders(HttpServletResponse response) {
         response.setHeader("Access-Control-Allow-Origin", frontend_Url);
@@ -40,14 +68,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try{
 //            Get Jwt from header
 //            validate token
-//            if valid Get User Details
-//            get user name -> load User -> set the auth context
+//            if valid build User Details from the claims (legacy tokens: load User)
+//            check the token is not revoked -> set the auth context
             String jwt = jwtTokenProvider.getJwtFromHeader(request);
 
-            if(jwt != null && jwtTokenProvider.validateToken(jwt))
+            if(jwt != null)
             {
-                String username = jwtTokenProvider.getUserNameFromJwtToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                long start = System.nanoTime();
+                VerifiedJwt verifiedJwt;
+                try {
+                    verifiedJwt = jwtTokenProvider.verifyToken(jwt);
+                } catch (RuntimeException e) {
+                    rejectedTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    throw e;
+                }
+                verifiedTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                UserDetails userDetails;
+                if (verifiedJwt.userId() != null) {
+                    if (!securityVersions.isCurrent(verifiedJwt.userId(), verifiedJwt.securityVersion())) {
+                        throw new JwtException("JWT token has been revoked");
+                    }
+                    userDetails = UserDetailsImpl.build(verifiedJwt);
+                } else {
+                    userDetails = userDetailsService.loadUserByUsername(verifiedJwt.username());
+                }
                 if(userDetails != null)
                 {
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails,null,userDetails.getAuthorities());
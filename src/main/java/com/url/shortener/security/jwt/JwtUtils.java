@@ -1,21 +1,31 @@
 package com.url.shortener.security.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.url.shortener.service.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.Date;
 import java.util.stream.Collectors;
 
@@ -29,6 +39,41 @@ public class JwtUtils {
     @Value("${jwt.expiration}")
     private String jwtExpirationMs;
 
+    @Value("${jwt.cache.maximum-size}")
+    private long verifiedCacheSize;
+
+    private SecretKey key;
+    private JwtParser parser;
+
+    // Tokens that already passed signature verification, keyed by SHA-256 of the token
+    // and dropped when the token expires
+    private Cache<String, VerifiedJwt> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        parser = Jwts.parser().verifyWith(key).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, VerifiedJwt>() {
+                    @Override
+                    public long expireAfterCreate(String digest, VerifiedJwt jwt, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), jwt.expiration()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String digest, VerifiedJwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String digest, VerifiedJwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     public String getJwtFromHeader(HttpServletRequest request)
     {
         String bearerToken = request.getHeader("Authorization");
@@ -50,30 +95,53 @@ public class JwtUtils {
         return Jwts.builder()
                 .subject(username)
                 .claim("roles",roles)
+                .claim("uid",userDetails.getId())
+                .claim("ver",userDetails.getSecurityVersion())
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(expiration))
-                .signWith(key())
+                .signWith(key)
                 .compact();
     }
 
-    public String getUserNameFromJwtToken(String token)
+    // Verifies the signature and extracts the claims in one pass
+    public VerifiedJwt verifyToken(String token)
     {
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build().parseSignedClaims(token)
-                .getPayload().getSubject();
+        String digest = digest(token);
+        VerifiedJwt cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && cached.expiration().isAfter(Instant.now())) {
+            return cached;
+        }
+
+        VerifiedJwt verified = parse(token);
+        verifiedTokens.put(digest, verified);
+        return verified;
     }
 
-    private Key key(){
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    public String getUserNameFromJwtToken(String token)
+    {
+        return verifyToken(token).username();
     }
 
     public boolean validateToken(String authToken)
+    {
+        verifyToken(authToken);
+        return true;
+    }
+
+    // Uncached verification; package-private so the JMH benchmarks can measure it
+    VerifiedJwt parse(String token)
     {
         try {
-            Jwts.parser().verifyWith((SecretKey) key())
-                    .build().parseSignedClaims(authToken);
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getExpiration() == null) {
+                throw new JwtException("JWT token has no expiration");
+            }
+            Number userId = claims.get("uid", Number.class);
+            Number securityVersion = claims.get("ver", Number.class);
+            return new VerifiedJwt(claims.getSubject(), claims.get("roles", String.class),
+                    userId == null ? null : userId.longValue(),
+                    securityVersion == null ? null : securityVersion.intValue(),
+                    claims.getExpiration().toInstant());
         } catch (ExpiredJwtException e) {
             throw new ExpiredJwtException(null, null, "JWT token has expired", e);
         } catch (MalformedJwtException e) {
@@ -86,4 +154,13 @@ public class JwtUtils {
             throw new RuntimeException(e);
         }
     }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
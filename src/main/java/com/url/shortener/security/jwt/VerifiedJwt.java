@@ -0,0 +1,7 @@
+package com.url.shortener.security.jwt;
+
+import java.time.Instant;
+
+// userId and securityVersion are null for tokens issued before they were embedded
+public record VerifiedJwt(String username, String roles, Long userId, Integer securityVersion, Instant expiration) {
+}
@@ -0,0 +1,74 @@
+package com.url.shortener.security.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+// Rejects floods before JWT verification, BCrypt or any query runs. Route groups:
+//   redirect  GET /{shortUrl}                       per IP
+//   login     /api/auth/public/login                per IP (per user is checked in UserService)
+//   otp       /forgotPassword/**, /api/users/resetPassword/**
+//                                                   per IP, and per email when it is in the path
+//   deletion  GET /api/deletions/{jobId}            per IP
+// The client IP is the remote address; behind a proxy enable server.forward-headers-strategy.
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final String frontendUrl;
+
+    public RateLimitFilter(RateLimiter rateLimiter, @Value("${frontend.url}") String frontendUrl) {
+        this.rateLimiter = rateLimiter;
+        this.frontendUrl = frontendUrl;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        long retryAfterSeconds = check(request);
+        if (retryAfterSeconds > 0) {
+            response.setStatus(429);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setHeader("Access-Control-Allow-Origin", frontendUrl);
+            response.setHeader("Access-Control-Allow-Credentials", "true");
+            response.getWriter().write("Too many requests, retry in " + retryAfterSeconds + "s");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private long check(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String ip = request.getRemoteAddr();
+
+        if (path.startsWith("/forgotPassword/")) {
+            long wait = rateLimiter.tryAcquire(rateLimiter.getOtpPerIp(), ip);
+            if (wait > 0) {
+                return wait;
+            }
+//            Every /forgotPassword endpoint ends with the email
+            String email = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            return rateLimiter.tryAcquire(rateLimiter.getOtpPerUser(), email);
+        }
+        if (path.startsWith("/api/users/resetPassword/")) {
+            return rateLimiter.tryAcquire(rateLimiter.getOtpPerIp(), ip);
+        }
+        if (path.startsWith("/api/deletions/")) {
+            return rateLimiter.tryAcquire(rateLimiter.getDeletionStatusPerIp(), ip);
+        }
+        if (path.equals("/api/auth/public/login")) {
+            return rateLimiter.tryAcquire(rateLimiter.getLoginPerIp(), ip);
+        }
+        if ("GET".equals(request.getMethod()) && path.length() > 1 && path.indexOf('/', 1) < 0) {
+            return rateLimiter.tryAcquire(rateLimiter.getRedirectPerIp(), ip);
+        }
+        return 0;
+    }
+}
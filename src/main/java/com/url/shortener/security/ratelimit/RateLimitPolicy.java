@@ -0,0 +1,27 @@
+package com.url.shortener.security.ratelimit;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+
+// "<limit>/<period>", e.g. "100/1s" or "10/1m": up to limit requests in a burst,
+// refilled evenly over the period
+public record RateLimitPolicy(String name, int limit, Duration period) {
+
+    public static RateLimitPolicy parse(String name, String spec) {
+        int slash = spec.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Rate limit " + name + " must look like <limit>/<period>: " + spec);
+        }
+        int limit = Integer.parseInt(spec.substring(0, slash).trim());
+        Duration period = DurationStyle.detectAndParse(spec.substring(slash + 1).trim());
+        if (limit < 1 || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("Invalid rate limit " + name + ": " + spec);
+        }
+        return new RateLimitPolicy(name, limit, period);
+    }
+
+    long emissionIntervalNanos() {
+        return Math.max(1, period.toNanos() / limit);
+    }
+}
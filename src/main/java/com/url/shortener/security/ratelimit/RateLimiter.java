@@ -0,0 +1,86 @@
+package com.url.shortener.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.url.shortener.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Token buckets per (policy, client key), e.g. per IP or per user. The map is bounded
+// and forgets buckets that have been idle longer than idle-expiry, which must exceed
+// the longest policy period so that only already-refilled buckets are dropped.
+@Component
+public class RateLimiter {
+
+    private record BucketKey(String policy, String key) {
+    }
+
+    private final boolean enabled;
+    @Getter
+    private final RateLimitPolicy redirectPerIp;
+    @Getter
+    private final RateLimitPolicy loginPerIp;
+    @Getter
+    private final RateLimitPolicy loginPerUser;
+    @Getter
+    private final RateLimitPolicy otpPerIp;
+    @Getter
+    private final RateLimitPolicy otpPerUser;
+    @Getter
+    private final RateLimitPolicy deletionStatusPerIp;
+
+    private final Cache<BucketKey, TokenBucket> buckets;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimiter(MeterRegistry meterRegistry,
+                       @Value("${ratelimit.enabled}") boolean enabled,
+                       @Value("${ratelimit.max-keys}") long maxKeys,
+                       @Value("${ratelimit.idle-expiry-ms}") long idleExpiryMs,
+                       @Value("${ratelimit.redirect.per-ip}") String redirectPerIp,
+                       @Value("${ratelimit.login.per-ip}") String loginPerIp,
+                       @Value("${ratelimit.login.per-user}") String loginPerUser,
+                       @Value("${ratelimit.otp.per-ip}") String otpPerIp,
+                       @Value("${ratelimit.otp.per-user}") String otpPerUser,
+                       @Value("${ratelimit.deletion-status.per-ip}") String deletionStatusPerIp) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.redirectPerIp = RateLimitPolicy.parse("redirect.per-ip", redirectPerIp);
+        this.loginPerIp = RateLimitPolicy.parse("login.per-ip", loginPerIp);
+        this.loginPerUser = RateLimitPolicy.parse("login.per-user", loginPerUser);
+        this.otpPerIp = RateLimitPolicy.parse("otp.per-ip", otpPerIp);
+        this.otpPerUser = RateLimitPolicy.parse("otp.per-user", otpPerUser);
+        this.deletionStatusPerIp = RateLimitPolicy.parse("deletion-status.per-ip", deletionStatusPerIp);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofMillis(idleExpiryMs))
+                .build();
+    }
+
+    // Returns 0 if allowed, otherwise the number of seconds to wait before retrying
+    public long tryAcquire(RateLimitPolicy policy, String key) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(new BucketKey(policy.name(), key), k -> new TokenBucket(policy, now));
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos == 0) {
+            return 0;
+        }
+        Counter.builder("ratelimit.rejected").tag("policy", policy.name()).register(meterRegistry).increment();
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    public void check(RateLimitPolicy policy, String key) {
+        long retryAfterSeconds = tryAcquire(policy, key);
+        if (retryAfterSeconds > 0) {
+            throw new TooManyRequestsException("Too many requests, retry in " + retryAfterSeconds + "s", retryAfterSeconds);
+        }
+    }
+}
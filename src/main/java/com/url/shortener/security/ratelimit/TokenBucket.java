@@ -0,0 +1,35 @@
+package com.url.shortener.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket in GCRA form: the whole state is one "theoretical arrival time", so a
+// request is a single compare-and-set with no refill bookkeeping. Each request pushes
+// the time forward by one emission interval; it is refused once that would run more
+// than a full bucket ahead of now.
+final class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(RateLimitPolicy policy, long nowNanos) {
+        this.emissionIntervalNanos = policy.emissionIntervalNanos();
+        this.capacityNanos = emissionIntervalNanos * policy.limit();
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    // Returns 0 if the request is allowed, otherwise how long to wait in nanoseconds
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + emissionIntervalNanos;
+            long wait = next - nowNanos - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.url.shortener.service;
+
+import com.url.shortener.dtos.BatchShortenResult;
+import com.url.shortener.models.UrlMapping;
+import com.url.shortener.models.User;
+import com.url.shortener.repository.UrlMappingRepository;
+import com.url.shortener.shortcode.ShortCodeFilter;
+import com.url.shortener.shortcode.ShortCodeGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Creates short links for a stream of URLs. Input is consumed in chunks of chunk-size;
+// each chunk is validated, saved in one transaction (ids come from the pooled sequence,
+// so Hibernate sends the inserts as JDBC batches) and handed to the caller in input
+// order before the next chunk is read. Invalid URLs get an error result and do not
+// affect the rest of the chunk.
+@Slf4j
+@Service
+public class BatchShortenService {
+
+    // Fits the default varchar(255) of url_mapping.original_url
+    private static final int MAX_URL_LENGTH = 255;
+
+    private final UrlMappingRepository urlMappingRepository;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final ShortCodeFilter shortCodeFilter;
+    private final ShortUrlCache shortUrlCache;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxItems;
+    private final Counter created;
+    private final Counter rejected;
+
+    public BatchShortenService(UrlMappingRepository urlMappingRepository,
+                               ShortCodeGenerator shortCodeGenerator,
+                               ShortCodeFilter shortCodeFilter,
+                               ShortUrlCache shortUrlCache,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${urls.batch.chunk-size}") int chunkSize,
+                               @Value("${urls.batch.max-items}") int maxItems) {
+        this.urlMappingRepository = urlMappingRepository;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.shortCodeFilter = shortCodeFilter;
+        this.shortUrlCache = shortUrlCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+        this.created = Counter.builder("urls.batch.created").register(meterRegistry);
+        this.rejected = Counter.builder("urls.batch.rejected").register(meterRegistry);
+    }
+
+    public void shorten(User user, Iterator<String> urls, Consumer<List<BatchShortenResult>> consumer) {
+        List<String> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        while (urls.hasNext()) {
+            if (index + chunk.size() >= maxItems) {
+                consumer.accept(shortenChunk(user, chunk, index));
+                consumer.accept(List.of(BatchShortenResult.failed(maxItems, null,
+                        "Batch is limited to " + maxItems + " URLs, the rest was not read")));
+                return;
+            }
+            chunk.add(urls.next());
+            if (chunk.size() == chunkSize) {
+                consumer.accept(shortenChunk(user, chunk, index));
+                index += chunk.size();
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            consumer.accept(shortenChunk(user, chunk, index));
+        }
+    }
+
+    private List<BatchShortenResult> shortenChunk(User user, List<String> urls, int firstIndex) {
+        List<BatchShortenResult> results = new ArrayList<>(urls.size());
+        List<UrlMapping> mappings = new ArrayList<>(urls.size());
+        List<Integer> positions = new ArrayList<>(urls.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < urls.size(); i++) {
+            String originalUrl = urls.get(i) == null ? null : urls.get(i).trim();
+            String error = validate(originalUrl);
+            if (error != null) {
+                results.add(BatchShortenResult.failed(firstIndex + i, originalUrl, error));
+                continue;
+            }
+            UrlMapping urlMapping = new UrlMapping();
+            urlMapping.setOriginalUrl(originalUrl);
+            urlMapping.setUrlHash(UrlNormalizer.hash(originalUrl));
+            urlMapping.setShortUrl(shortCodeGenerator.nextCode());
+            urlMapping.setUser(user);
+            urlMapping.setCreatedDate(now);
+            mappings.add(urlMapping);
+            positions.add(i);
+            results.add(null);
+        }
+        rejected.increment(urls.size() - mappings.size());
+        if (mappings.isEmpty()) {
+            return results;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> urlMappingRepository.saveAll(mappings));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Failed to save a batch of {} short urls", mappings.size(), e);
+            for (int i = 0; i < mappings.size(); i++) {
+                int position = positions.get(i);
+                results.set(position, BatchShortenResult.failed(firstIndex + position, mappings.get(i).getOriginalUrl(),
+                        "Could not be saved, please retry"));
+            }
+            return results;
+        }
+
+        List<String> shortUrls = new ArrayList<>(mappings.size());
+        for (int i = 0; i < mappings.size(); i++) {
+            UrlMapping urlMapping = mappings.get(i);
+            int position = positions.get(i);
+            shortCodeFilter.add(urlMapping.getShortUrl());
+            shortUrls.add(urlMapping.getShortUrl());
+            results.set(position, BatchShortenResult.created(firstIndex + position, urlMapping.getOriginalUrl(),
+                    urlMapping.getShortUrl(), urlMapping.getId()));
+        }
+//        Drop any cached "not found" for the new codes
+        shortUrlCache.invalidateAll(shortUrls);
+        created.increment(mappings.size());
+        return results;
+    }
+
+    // Returns null if the URL is acceptable, otherwise the reason it is not
+    static String validate(String url) {
+        if (url == null || url.isEmpty()) {
+            return "originalUrl is required";
+        }
+        if (url.length() > MAX_URL_LENGTH) {
+            return "URL is longer than " + MAX_URL_LENGTH + " characters";
+        }
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme();
+            if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))
+                    || uri.getHost() == null) {
+                return "Only absolute http and https URLs are accepted";
+            }
+        } catch (URISyntaxException e) {
+            return "Malformed URL";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,144 @@
+package com.url.shortener.service;
+
+import com.url.shortener.archive.ClickArchive;
+import com.url.shortener.dtos.ClickEventDto;
+import com.url.shortener.dtos.DailyClickCount;
+import com.url.shortener.models.User;
+import com.url.shortener.repository.ClickEventRepository;
+import com.url.shortener.repository.ClickRollupRepository;
+import com.url.shortener.repository.UrlMappingRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Daily click analytics. Served from the click_rollup table (one row per link per day)
+// unless analytics.rollups.enabled is off, in which case raw click events are grouped
+// by day in the database. Either way only one row per day reaches the application.
+// On the raw path, days already moved to the click archive are read from its segment
+// files and only the remaining days from click_event.
+// analytics.query times each request by source; analytics.query.rows approximates the
+// rows it had to read: rollup rows returned, or the click events (archived or not) counted.
+@Service
+public class ClickAnalyticsService {
+
+    private final ClickRollupRepository clickRollupRepository;
+    private final ClickEventRepository clickEventRepository;
+    private final UrlMappingRepository urlMappingRepository;
+    private final ClickArchive clickArchive;
+    private final boolean rollupsEnabled;
+    private final MeterRegistry meterRegistry;
+
+    public ClickAnalyticsService(ClickRollupRepository clickRollupRepository,
+                                 ClickEventRepository clickEventRepository,
+                                 UrlMappingRepository urlMappingRepository,
+                                 ClickArchive clickArchive,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${analytics.rollups.enabled}") boolean rollupsEnabled) {
+        this.clickRollupRepository = clickRollupRepository;
+        this.clickEventRepository = clickEventRepository;
+        this.urlMappingRepository = urlMappingRepository;
+        this.clickArchive = clickArchive;
+        this.rollupsEnabled = rollupsEnabled;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Rollups have day granularity, so the range is widened to whole days
+    public List<ClickEventDto> getClicksByDate(Long urlMappingId, LocalDateTime start, LocalDateTime end) {
+        long queryStart = System.nanoTime();
+        if (rollupsEnabled) {
+            List<DailyClickCount> rollups = clickRollupRepository.findDailyClicks(urlMappingId, start.toLocalDate(), end.toLocalDate());
+            record("link", "rollup", queryStart, rollups.size());
+            return rollups.stream()
+                    .map(ClickAnalyticsService::toDto)
+                    .collect(Collectors.toList());
+        }
+        Map<LocalDate, Long> clicks = toMap(clickEventRepository.countDailyClicks(urlMappingId, hotStart(start), end));
+        long archiveStart = record("link", "click_event", queryStart, total(clicks));
+        Map<LocalDate, Long> archived = clickArchive.countDaily(List.of(urlMappingId), start, end);
+        record("link", "archive", archiveStart, total(archived));
+        clicks.putAll(archived);
+        return clicks.entrySet().stream()
+                .map(entry -> toDto(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    public Map<LocalDate, Long> getClicksByUserAndDate(User user, LocalDate start, LocalDate end) {
+        long queryStart = System.nanoTime();
+        if (rollupsEnabled) {
+            Map<LocalDate, Long> clicks = toMap(clickRollupRepository.findDailyClicksByUser(user.getId(), start, end));
+            record("user", "rollup", queryStart, clicks.size());
+            return clicks;
+        }
+        LocalDateTime from = start.atStartOfDay();
+        LocalDateTime until = end.plusDays(1).atStartOfDay();
+        Map<LocalDate, Long> clicks = toMap(clickEventRepository.countDailyClicksByUser(user.getId(), hotStart(from), until));
+        long archiveStart = record("user", "click_event", queryStart, total(clicks));
+        if (clickArchive.hotFrom().filter(hotFrom -> hotFrom.isAfter(start)).isPresent()) {
+            Map<LocalDate, Long> archived = clickArchive.countDaily(urlMappingRepository.findIdsByUserId(user.getId()), from, until.minusNanos(1));
+            record("user", "archive", archiveStart, total(archived));
+            clicks.putAll(archived);
+        }
+        return clicks;
+    }
+
+    // Records one query and returns the current time for the next one
+    private long record(String scope, String source, long startNanos, long rows) {
+        long now = System.nanoTime();
+        Timer.builder("analytics.query")
+                .description("Time spent on a click analytics query")
+                .tags("scope", scope, "source", source)
+                .register(meterRegistry)
+                .record(now - startNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("analytics.query.rows")
+                .description("Approximate rows read by a click analytics query")
+                .tags("scope", scope, "source", source)
+                .register(meterRegistry)
+                .record(rows);
+        return now;
+    }
+
+    private static long total(Map<LocalDate, Long> clicks) {
+        long total = 0;
+        for (Long count : clicks.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Archived days are answered by the archive only, even if some raw rows are still being deleted
+    private LocalDateTime hotStart(LocalDateTime start) {
+        return clickArchive.hotFrom()
+                .map(LocalDate::atStartOfDay)
+                .filter(hotFrom -> hotFrom.isAfter(start))
+                .orElse(start);
+    }
+
+    private static Map<LocalDate, Long> toMap(List<DailyClickCount> dailyClicks) {
+        Map<LocalDate, Long> clicks = new TreeMap<>();
+        for (DailyClickCount dailyClickCount : dailyClicks) {
+            clicks.put(dailyClickCount.getClickDate(), dailyClickCount.getClicks());
+        }
+        return clicks;
+    }
+
+    private static ClickEventDto toDto(LocalDate clickDate, Long count) {
+        ClickEventDto clickEventDto = new ClickEventDto();
+        clickEventDto.setClickDate(clickDate);
+        clickEventDto.setCount(count);
+        return clickEventDto;
+    }
+
+    private static ClickEventDto toDto(DailyClickCount dailyClickCount) {
+        return toDto(dailyClickCount.getClickDate(), dailyClickCount.getClicks());
+    }
+}
@@ -0,0 +1,123 @@
+package com.url.shortener.service;
+
+import com.url.shortener.invalidation.InvalidationBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Nightly cleanup of repeated URLs per user, in two passes over url_mapping by id range:
+//   1. fill in url_hash for rows created before the column existed
+//   2. tombstone duplicates of an older mapping with the same (user_id, url_hash), like
+//      a delete from the dashboard; DeletionWorker purges them after its grace period
+// A removed code stops redirecting, even if it was printed or shared somewhere, and
+// disappears from its owner's list, so the job is off unless merge-enabled is set.
+// Only duplicates that were never clicked and are older than min-age-days qualify;
+// the oldest mapping of each URL always survives.
+@Slf4j
+@Component
+public class DuplicateUrlMerger {
+
+    private static final String TOMBSTONE_DUPLICATES =
+            "update url_mapping d set deleted_at = ? " +
+            "where d.id > ? and d.id <= ? and d.click_count = 0 and d.created_date < ? and d.deleted_at is null " +
+            "and exists (select 1 from url_mapping k where k.user_id = d.user_id and k.url_hash = d.url_hash " +
+            "and k.id < d.id and k.deleted_at is null) " +
+            "and not exists (select 1 from click_event e where e.url_mapping_id = d.id) " +
+            "returning d.short_url";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InvalidationBus invalidationBus;
+    private final boolean enabled;
+    private final int minAgeDays;
+    private final int pageSize;
+    private final Counter merged;
+
+    public DuplicateUrlMerger(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              InvalidationBus invalidationBus,
+                              MeterRegistry meterRegistry,
+                              @Value("${urls.dedupe.merge-enabled}") boolean enabled,
+                              @Value("${urls.dedupe.min-age-days}") int minAgeDays,
+                              @Value("${urls.dedupe.page-size}") int pageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invalidationBus = invalidationBus;
+        this.enabled = enabled;
+        this.minAgeDays = minAgeDays;
+        this.pageSize = pageSize;
+        this.merged = Counter.builder("urls.dedupe.merged").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${urls.dedupe.merge-cron}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long hashed = backfillHashes();
+            long tombstoned = mergeDuplicates();
+            log.info("Duplicate URL merge: hashed {} rows, tombstoned {} duplicates", hashed, tombstoned);
+        } catch (RuntimeException e) {
+            log.warn("Duplicate URL merge failed", e);
+        }
+    }
+
+    long backfillHashes() {
+        long lastId = 0;
+        long hashed = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>(pageSize);
+            List<Long> ids = jdbcTemplate.query(
+                    "select id, original_url from url_mapping where url_hash is null and id > ? order by id limit ?",
+                    (rs, rowNum) -> {
+                        String originalUrl = rs.getString(2);
+                        if (originalUrl != null) {
+                            updates.add(new Object[]{UrlNormalizer.hash(originalUrl), rs.getLong(1)});
+                        }
+                        return rs.getLong(1);
+                    },
+                    lastId, pageSize);
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate("update url_mapping set url_hash = ? where id = ? and url_hash is null", updates);
+                hashed += updates.size();
+            }
+            if (ids.size() < pageSize) {
+                return hashed;
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+    }
+
+    long mergeDuplicates() {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from url_mapping", Long.class);
+        if (maxId == null) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusDays(minAgeDays);
+        long tombstoned = 0;
+        for (long from = 0; from < maxId; from += pageSize) {
+            long start = from;
+            List<String> shortUrls = transactionTemplate.execute(status -> jdbcTemplate.queryForList(TOMBSTONE_DUPLICATES,
+                    String.class, now, start, start + pageSize, cutoff));
+            if (shortUrls == null || shortUrls.isEmpty()) {
+                continue;
+            }
+            invalidationBus.invalidateLinks(shortUrls);
+            merged.increment(shortUrls.size());
+            tombstoned += shortUrls.size();
+        }
+        return tombstoned;
+    }
+}
@@ -1,41 +1,70 @@
 package com.url.shortener.service;
 
 import com.url.shortener.dtos.MailBody;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import com.url.shortener.mail.MailDispatcher;
+import com.url.shortener.mail.MailTemplate;
+import com.url.shortener.mail.MailTemplates;
+import com.url.shortener.models.MailOutbox;
+import com.url.shortener.repository.MailOutboxRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Mail is never sent on the request thread: messages are written to the mail_outbox
+// table and delivered by MailDispatcher.
 @Service
 public class EmailService {
 
-    private final JavaMailSender javaMailSender;
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailDispatcher mailDispatcher;
+    private final MailTemplate otpHtml;
+    private final MailTemplate otpText;
 
-    public EmailService(JavaMailSender javaMailSender) {
-        this.javaMailSender = javaMailSender;
+    public EmailService(MailOutboxRepository mailOutboxRepository,
+                        MailDispatcher mailDispatcher,
+                        MailTemplates mailTemplates) {
+        this.mailOutboxRepository = mailOutboxRepository;
+        this.mailDispatcher = mailDispatcher;
+        this.otpHtml = mailTemplates.get("otp.html");
+        this.otpText = mailTemplates.get("otp.txt");
     }
 
-    @Value("${forgot.username}")
-    private String username;
+    public void sendOtp(String username, int otp, String to, String subject, String heading) {
+        Map<String, Object> values = Map.of(
+                "username", username,
+                "otp", otp,
+                "heading", heading);
 
+        sendHtmlMessage(MailBody.builder()
+                .to(to)
+                .subject(subject)
+                .text(otpText.render(values))
+                .html(otpHtml.render(values))
+                .build());
+    }
 
     public void sendHtmlMessage(MailBody mailBody) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(mailBody.to());
-        message.setSubject(mailBody.subject());
-        try {
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true);
-            helper.setTo(mailBody.to());
-            helper.setFrom(username);
-            helper.setSubject(mailBody.subject());
-            helper.setText(mailBody.html(), true);
-            javaMailSender.send(mimeMessage);
-        } catch (MessagingException e) {
-            throw new RuntimeException("Error sending email");
+        MailOutbox mail = new MailOutbox();
+        mail.setRecipient(mailBody.to());
+        mail.setSubject(mailBody.subject());
+        mail.setTextBody(mailBody.text());
+        mail.setHtmlBody(mailBody.html());
+        mail.setCreatedDate(LocalDateTime.now());
+        mail.setNextAttemptAt(mail.getCreatedDate());
+        mailOutboxRepository.save(mail);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    mailDispatcher.wakeUp();
+                }
+            });
+        } else {
+            mailDispatcher.wakeUp();
         }
     }
 }
@@ -0,0 +1,41 @@
+package com.url.shortener.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Redirect latency split into its two parts: the lookup (Bloom filter, cache and, on a
+// miss, the database) and handing the click to the pipeline. Meters are resolved once
+// here, so a request only pays for two nanoTime calls and two lock-free timer updates.
+@Component
+public class RedirectMetrics {
+
+    private final Timer lookupFound;
+    private final Timer lookupMissing;
+    private final Timer clickRecord;
+
+    public RedirectMetrics(MeterRegistry meterRegistry) {
+        this.lookupFound = lookupTimer(meterRegistry, "found");
+        this.lookupMissing = lookupTimer(meterRegistry, "missing");
+        this.clickRecord = Timer.builder("redirect.click.record")
+                .description("Time spent handing a redirect's click to the click pipeline")
+                .register(meterRegistry);
+    }
+
+    public void recordLookup(long startNanos, boolean found) {
+        (found ? lookupFound : lookupMissing).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordClick(long startNanos) {
+        clickRecord.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer lookupTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("redirect.lookup")
+                .description("Time spent resolving a short code to its target")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,123 @@
+package com.url.shortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.url.shortener.dtos.RedirectTarget;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Read-through cache in front of the short code lookup. Caffeine evicts with W-TinyLFU,
+// so the few links that take most of the traffic stay resident. Unknown codes are
+// cached as Optional.empty() with a much shorter TTL.
+// Puts are versioned: every invalidation stamps its key with a new version, and a put
+// carries the version() read before its data was loaded. A put older than the last
+// invalidation of its key is dropped, so a target read before a delete (a slow or
+// asynchronous lookup, the hot-set warmer) cannot bring a deleted link back.
+@Component
+public class ShortUrlCache {
+
+    private final Cache<String, Optional<RedirectTarget>> cache;
+    private final AtomicLong versions = new AtomicLong();
+    // Version of the last invalidation per key, kept as long as a stale read could be in flight
+    private final Cache<String, Long> invalidatedAt;
+    private volatile long clearedAt;
+
+    public ShortUrlCache(MeterRegistry meterRegistry,
+                         @Value("${redirect.cache.maximum-weight}") long maximumWeight,
+                         @Value("${redirect.cache.ttl-ms}") long ttlMs,
+                         @Value("${redirect.cache.negative-ttl-ms}") long negativeTtlMs) {
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        long negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMs);
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(ShortUrlCache::weigh)
+                .expireAfter(new Expiry<String, Optional<RedirectTarget>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<RedirectTarget> value, long currentTime) {
+                        return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<RedirectTarget> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<RedirectTarget> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        this.invalidatedAt = Caffeine.newBuilder()
+                .expireAfterWrite(ttlNanos, TimeUnit.NANOSECONDS)
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "redirect");
+    }
+
+    // Approximate retained size in bytes: two bytes per char plus entry overhead
+    private static int weigh(String shortUrl, Optional<RedirectTarget> target) {
+        int urlLength = target.map(t -> t.originalUrl() == null ? 0 : t.originalUrl().length()).orElse(0);
+        return 96 + 2 * (shortUrl.length() + urlLength);
+    }
+
+    public Optional<RedirectTarget> get(String shortUrl, Function<String, Optional<RedirectTarget>> loader) {
+        return cache.get(shortUrl, loader);
+    }
+
+    // The cached lookup without loading: null if absent, Optional.empty() for an unknown code
+    public Optional<RedirectTarget> getIfPresent(String shortUrl) {
+        return cache.getIfPresent(shortUrl);
+    }
+
+    // Read before loading the data of a put
+    public long version() {
+        return versions.get();
+    }
+
+    // Stores a lookup read at readVersion outside get(), e.g. when warming the cache on
+    // startup or after a non-blocking query; Optional.empty() caches an unknown code
+    public void put(String shortUrl, Optional<RedirectTarget> target, long readVersion) {
+        cache.asMap().compute(shortUrl, (key, current) -> isStale(key, readVersion) ? current : target);
+    }
+
+    private boolean isStale(String shortUrl, long readVersion) {
+        Long invalidated = invalidatedAt.getIfPresent(shortUrl);
+        return clearedAt > readVersion || (invalidated != null && invalidated > readVersion);
+    }
+
+    public void invalidate(String shortUrl) {
+        invalidatedAt.put(shortUrl, versions.incrementAndGet());
+        cache.invalidate(shortUrl);
+    }
+
+    public void invalidateAll(Collection<String> shortUrls) {
+        long version = versions.incrementAndGet();
+        for (String shortUrl : shortUrls) {
+            invalidatedAt.put(shortUrl, version);
+        }
+        cache.invalidateAll(shortUrls);
+    }
+
+    public void invalidateAll() {
+        clearedAt = versions.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -1,111 +1,214 @@
 package com.url.shortener.service;
 
+import com.url.shortener.click.ClickCounterRegistry;
+import com.url.shortener.click.ClickPipeline;
 import com.url.shortener.dtos.ClickEventDto;
+import com.url.shortener.dtos.RedirectTarget;
 import com.url.shortener.dtos.UrlMappingDto;
-import com.url.shortener.models.ClickEvent;
+import com.url.shortener.dtos.UrlMappingPage;
+import com.url.shortener.exceptions.BadRequestException;
+import com.url.shortener.invalidation.InvalidationBus;
 import com.url.shortener.models.UrlMapping;
 import com.url.shortener.models.User;
-import com.url.shortener.repository.ClickEventRepository;
 import com.url.shortener.repository.UrlMappingRepository;
+import com.url.shortener.shortcode.ShortCodeFilter;
+import com.url.shortener.shortcode.ShortCodeGenerator;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 @AllArgsConstructor
 public class UrlMappingService {
 
-    private UrlMappingRepository urlMappingRepository;
-    private ClickEventRepository clickEventRepository;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    // Keyset position: the (createdDate, id) of the last row already returned
+    private record UrlCursor(LocalDateTime createdDate, Long id) {
+    }
 
-    public UrlMappingDto createShortUrl(String originalUrl, User user) {
-        String shortUrl = generateShortUrl();
+    private UrlMappingRepository urlMappingRepository;
+    private ShortUrlCache shortUrlCache;
+    private ClickPipeline clickPipeline;
+    private ClickCounterRegistry clickCounters;
+    private ShortCodeGenerator shortCodeGenerator;
+    private ClickAnalyticsService clickAnalyticsService;
+    private ShortCodeFilter shortCodeFilter;
+    private RedirectMetrics redirectMetrics;
+    private InvalidationBus invalidationBus;
+
+    // With dedupe, a URL the user already shortened (after normalization) returns the existing mapping
+    public UrlMappingDto createShortUrl(String originalUrl, User user, boolean dedupe) {
+        byte[] urlHash = originalUrl == null ? null : UrlNormalizer.hash(originalUrl);
+        if (dedupe && urlHash != null) {
+            Optional<UrlMapping> existing = urlMappingRepository.findFirstByUserIdAndUrlHashAndDeletedAtIsNullOrderByIdAsc(user.getId(), urlHash);
+            if (existing.isPresent()) {
+                return convertToDto(existing.get());
+            }
+        }
+        String shortUrl = shortCodeGenerator.nextCode();
         UrlMapping urlMapping = new UrlMapping();
         urlMapping.setOriginalUrl(originalUrl);
+        urlMapping.setUrlHash(urlHash);
         urlMapping.setShortUrl(shortUrl);
         urlMapping.setUser(user);
         urlMapping.setCreatedDate(LocalDateTime.now());
         UrlMapping saveUrlMapping = urlMappingRepository.save(urlMapping);
+        shortCodeFilter.add(shortUrl);
+//        Drop any cached "not found" for this code; other nodes let theirs expire (negative-ttl-ms)
+        shortUrlCache.invalidate(shortUrl);
 
         return convertToDto(saveUrlMapping);
     }
 
     private UrlMappingDto convertToDto(UrlMapping urlMapping)
+    {
+//        Include clicks not yet flushed to the database
+        return toDto(urlMapping, clickCounters.pendingClicks(urlMapping.getId()));
+    }
+
+    // Package-private so the JMH benchmarks can call it directly
+    static UrlMappingDto toDto(UrlMapping urlMapping, long pendingClicks)
     {
         UrlMappingDto urlMappingDto = new UrlMappingDto();
         urlMappingDto.setId(urlMapping.getId());
         urlMappingDto.setOriginalUrl(urlMapping.getOriginalUrl());
         urlMappingDto.setShortUrl(urlMapping.getShortUrl());
-        urlMappingDto.setClickCount(urlMapping.getClickCount());
+        urlMappingDto.setClickCount(urlMapping.getClickCount() + (int) pendingClicks);
         urlMappingDto.setCreatedDate(urlMapping.getCreatedDate());
         urlMappingDto.setUsername(urlMapping.getUser().getUsername());
 
         return urlMappingDto;
     }
 
-    private String generateShortUrl() {
-        String characters = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-        Random random = new Random();
-        StringBuilder shortUrl = new StringBuilder(8);
-        for (int i = 0; i < 8; i++) {
-            shortUrl.append(characters.charAt(random.nextInt(characters.length())));
+    public UrlMappingPage getUrlPage(User user, String cursor, int limit, boolean oldestFirst, String query) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+//        Fetch one extra row to know whether another page exists
+        List<UrlMappingDto> items = findDtoPage(user.getId(), likePattern(query), decodeCursor(cursor), oldestFirst, pageSize + 1);
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = encodeCursor(items.get(pageSize - 1));
+        }
+        items.forEach(this::addPendingClicks);
+        return new UrlMappingPage(items, nextCursor);
+    }
+
+    // Walks all of the user's mappings page by page so callers can stream them out
+    public void forEachUrlByUser(User user, Consumer<UrlMappingDto> consumer) {
+        String filter = likePattern(null);
+        UrlCursor cursor = null;
+        while (true) {
+            List<UrlMappingDto> page = findDtoPage(user.getId(), filter, cursor, true, EXPORT_PAGE_SIZE);
+            for (UrlMappingDto urlMappingDto : page) {
+                addPendingClicks(urlMappingDto);
+                consumer.accept(urlMappingDto);
+            }
+            if (page.size() < EXPORT_PAGE_SIZE) {
+                return;
+            }
+            UrlMappingDto last = page.get(page.size() - 1);
+            cursor = new UrlCursor(last.getCreatedDate(), last.getId());
+        }
+    }
+
+    private List<UrlMappingDto> findDtoPage(Long userId, String filter, UrlCursor cursor, boolean oldestFirst, int size) {
+        Pageable pageable = PageRequest.ofSize(size);
+        if (cursor == null) {
+            return oldestFirst
+                    ? urlMappingRepository.findDtoPageOldestFirst(userId, filter, pageable)
+                    : urlMappingRepository.findDtoPageNewestFirst(userId, filter, pageable);
+        }
+        return oldestFirst
+                ? urlMappingRepository.findDtoPageOldestFirstAfter(userId, filter, cursor.createdDate(), cursor.id(), pageable)
+                : urlMappingRepository.findDtoPageNewestFirstAfter(userId, filter, cursor.createdDate(), cursor.id(), pageable);
+    }
+
+    private void addPendingClicks(UrlMappingDto urlMappingDto) {
+        urlMappingDto.setClickCount(urlMappingDto.getClickCount() + (int) clickCounters.pendingClicks(urlMappingDto.getId()));
+    }
+
+    private static String likePattern(String query) {
+        if (query == null || query.isBlank()) {
+            return "%";
         }
-        return shortUrl.toString();
+        String escaped = query.trim().toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        return "%" + escaped + "%";
     }
 
-    public List<UrlMappingDto> getUrlsByUser(User user) {
-        return urlMappingRepository.findByUser(user).stream()
-                .map(this::convertToDto)
-                .toList();
+    private static String encodeCursor(UrlMappingDto last) {
+        String position = last.getCreatedDate() + "," + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static UrlCursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.lastIndexOf(',');
+            return new UrlCursor(LocalDateTime.parse(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
     }
 
     public List<ClickEventDto> getClickEventsByDate(String shortUrl, LocalDateTime start, LocalDateTime end) {
-        UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
-        if (urlMapping != null)
+        Optional<Long> urlMappingId = urlMappingRepository.findIdByShortUrl(shortUrl);
+        if (urlMappingId.isPresent())
         {
-            return clickEventRepository.findByUrlMappingAndClickDateBetween(urlMapping,start,end).stream()
-                    .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()))
-                    .entrySet().stream()
-                    .map(entry -> {
-                        ClickEventDto clickEventDto = new ClickEventDto();
-                        clickEventDto.setClickDate(entry.getKey());
-                        clickEventDto.setCount(entry.getValue());
-                        return clickEventDto;
-                    })
-                    .collect(Collectors.toList());
+            return clickAnalyticsService.getClicksByDate(urlMappingId.get(), start, end);
         }
         return null;
     }
 
     public Map<LocalDate, Long> getClicksByUserAndDate(User user, LocalDate start, LocalDate end) {
-        List<UrlMapping> urlMappings = urlMappingRepository.findByUser(user);
-        List<ClickEvent> clickEvents = clickEventRepository.findByUrlMappingInAndClickDateBetween(urlMappings,start.atStartOfDay(),end.plusDays(1).atStartOfDay());
+        return clickAnalyticsService.getClicksByUserAndDate(user, start, end);
+    }
 
-        return clickEvents.stream()
-                .collect(Collectors.groupingBy(click -> click.getClickDate().toLocalDate(), Collectors.counting()));
+    public RedirectTarget getOriginalUrl(String shortUrl) {
+        long start = System.nanoTime();
+//        Codes that were never issued are answered from memory
+        if (!shortCodeFilter.mightContain(shortUrl)) {
+            redirectMetrics.recordLookup(start, false);
+            return null;
+        }
+        RedirectTarget target = shortUrlCache.get(shortUrl, urlMappingRepository::findRedirectTargetByShortUrl).orElse(null);
+        return completeRedirect(start, target);
     }
 
-    public UrlMapping getOriginalUrl(String shortUrl) {
-        UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
-        if (urlMapping != null)
+    // Finishes a lookup that passed the Bloom filter: records its latency and the click,
+    // or the filter's false positive. Also used by the reactive tier, which loads on its own.
+    public RedirectTarget completeRedirect(long start, RedirectTarget target) {
+        redirectMetrics.recordLookup(start, target != null);
+        if (target != null)
         {
-            urlMapping.setClickCount(urlMapping.getClickCount() + 1);
-            urlMappingRepository.save(urlMapping);
-
-//            Record Click Event
-            ClickEvent clickEvent = new ClickEvent();
-            clickEvent.setClickDate(LocalDateTime.now());
-            clickEvent.setUrlMapping(urlMapping);
-            clickEventRepository.save(clickEvent);
+//            Record Click Event (written asynchronously in batches)
+            long recordStart = System.nanoTime();
+            clickPipeline.record(target.urlMappingId());
+            redirectMetrics.recordClick(recordStart);
+        }
+        else {
+            shortCodeFilter.recordFalsePositive();
         }
-        return urlMapping;
+        return target;
     }
 
     public boolean deleteUrl(Long urlId, User user) {
@@ -114,7 +217,11 @@ public class UrlMappingService {
         {
             UrlMapping urlMapping = urlMappingOptional.get();
             if (urlMapping.getUser().getUsername().equals(user.getUsername())) {
-                urlMappingRepository.delete(urlMapping);
+//                Tombstone now; DeletionWorker reclaims the row and its clicks later
+                if (urlMapping.getDeletedAt() == null) {
+                    urlMappingRepository.markDeleted(urlId, LocalDateTime.now());
+                    invalidationBus.invalidateLink(urlMapping.getShortUrl());
+                }
                 return true;
             } else {
                 // User is not the owner of the URL, return false
@@ -0,0 +1,66 @@
+package com.url.shortener.service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Canonical form used to spot repeated URLs: scheme and host lower-cased, default
+// port and fragment dropped, empty path written as "/". Path and query are kept as
+// sent, since servers may treat their case and parameter order as significant.
+// Anything that does not parse as an absolute URI is only trimmed.
+public final class UrlNormalizer {
+
+    // Truncated SHA-256; 128 bits keeps collisions out of reach for any realistic table
+    public static final int HASH_BYTES = 16;
+
+    private UrlNormalizer() {
+    }
+
+    public static String normalize(String url) {
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+                return trimmed;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if ((port == 80 && scheme.equals("http")) || (port == 443 && scheme.equals("https"))) {
+                port = -1;
+            }
+            StringBuilder normalized = new StringBuilder(trimmed.length()).append(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                normalized.append(uri.getRawUserInfo()).append('@');
+            }
+            if (uri.getHost() == null) {
+                normalized.append(uri.getRawAuthority().toLowerCase(Locale.ROOT));
+            } else {
+                normalized.append(uri.getHost().toLowerCase(Locale.ROOT));
+                if (port != -1) {
+                    normalized.append(':').append(port);
+                }
+            }
+            String path = uri.getRawPath();
+            normalized.append(path == null || path.isEmpty() ? "/" : path);
+            if (uri.getRawQuery() != null) {
+                normalized.append('?').append(uri.getRawQuery());
+            }
+            return normalized.toString();
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+    }
+
+    public static byte[] hash(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalize(url).getBytes(StandardCharsets.UTF_8));
+            return Arrays.copyOf(digest, HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.url.shortener.service;
 
 import com.url.shortener.models.User;
+import com.url.shortener.security.jwt.VerifiedJwt;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -21,13 +24,16 @@ public class UserDetailsImpl implements UserDetails {
 
     private String password;
 
+    private int securityVersion;
+
     private Collection<? extends GrantedAuthority> authorities;
 
-    public UserDetailsImpl(Long id, String username, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+    public UserDetailsImpl(Long id, String username, String email, String password, int securityVersion, Collection<? extends GrantedAuthority> authorities) {
         this.id = id;
         this.username = username;
         this.email = email;
         this.password = password;
+        this.securityVersion = securityVersion;
         this.authorities = authorities;
     }
 
@@ -38,10 +44,27 @@ public class UserDetailsImpl implements UserDetails {
                 user.getUsername(),
                 user.getEmail(),
                 user.getPassword(),
+                user.getSecurityVersion(),
                 Collections.singletonList(authority)
         );
     }
 
+    // Principal for an already verified token; carries no email or password
+    public static UserDetailsImpl build(VerifiedJwt jwt) {
+        List<GrantedAuthority> authorities = jwt.roles() == null ? List.of() : Arrays.stream(jwt.roles().split(","))
+                .filter(role -> !role.isBlank())
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+        return new UserDetailsImpl(
+                jwt.userId(),
+                jwt.username(),
+                null,
+                null,
+                jwt.securityVersion(),
+                authorities
+        );
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
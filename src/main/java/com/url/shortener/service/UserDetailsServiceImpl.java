@@ -5,12 +5,13 @@ import com.url.shortener.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepository userRepository;
@@ -19,7 +20,19 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username)
+                .filter(u -> u.getDeletedAt() == null)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: "+ username));
         return UserDetailsImpl.build(user);
     }
+
+    // Called after a successful login whose stored hash uses an outdated BCrypt cost
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) user;
+        if (userRepository.rehashPassword(userDetails.getUsername(), userDetails.getPassword(), newPassword) == 0) {
+            return user;
+        }
+        return new UserDetailsImpl(userDetails.getId(), userDetails.getUsername(), userDetails.getEmail(),
+                newPassword, userDetails.getSecurityVersion(), userDetails.getAuthorities());
+    }
 }
\ No newline at end of file
@@ -2,11 +2,15 @@ package com.url.shortener.service;
 
 import com.url.shortener.dtos.LoginRequest;
 import com.url.shortener.exceptions.InvalidCredentialsException;
+import com.url.shortener.exceptions.ServiceBusyException;
+import com.url.shortener.invalidation.InvalidationBus;
+import com.url.shortener.models.DeletionJob;
 import com.url.shortener.models.User;
-import com.url.shortener.repository.UrlMappingRepository;
+import com.url.shortener.repository.DeletionJobRepository;
 import com.url.shortener.repository.UserRepository;
 import com.url.shortener.security.jwt.JwtAuthenticationResponse;
 import com.url.shortener.security.jwt.JwtUtils;
+import com.url.shortener.security.ratelimit.RateLimiter;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -16,7 +20,11 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
@@ -27,7 +35,9 @@ public class UserService {
     private AuthenticationManager authenticationManager;
     private JwtUtils jwtUtils;
 
-    private UrlMappingRepository urlMappingRepository;
+    private DeletionJobRepository deletionJobRepository;
+    private InvalidationBus invalidationBus;
+    private RateLimiter rateLimiter;
 
 
     public boolean isUsernameTaken(String username) {
@@ -46,6 +56,8 @@ public class UserService {
     }
 
     public JwtAuthenticationResponse authenticateUser(LoginRequest loginRequest){
+//        Per-user limit, checked before the BCrypt comparison
+        rateLimiter.check(rateLimiter.getLoginPerUser(), String.valueOf(loginRequest.getUsername()).toLowerCase(Locale.ROOT));
 
         try {
             Authentication authentication = authenticationManager.authenticate(
@@ -56,6 +68,10 @@ public class UserService {
             String jwt = jwtUtils.generateToken(userDetails);
             return new JwtAuthenticationResponse(jwt);
         }
+        catch (ServiceBusyException e)
+        {
+            throw e;
+        }
         catch (Exception e)
         {
             throw new InvalidCredentialsException("Invalid username or password");
@@ -68,11 +84,33 @@ public class UserService {
         );
     }
 
+    // Also revokes every token issued to the user
+    public void changePassword(User user, String password) {
+        userRepository.updatePassword(user.getEmail(), passwordEncoder.encode(password));
+        invalidationBus.invalidateUser(user.getId());
+    }
+
+    // Closes the account right away (login and tokens stop working) and queues a job that
+    // removes its links and clicks in the background
     @Transactional
-    public void deleteUser(Long userId) {
-        urlMappingRepository.deleteByUserId(userId);
+    public DeletionJob deleteUser(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (userRepository.markDeleted(userId, now) == 0) {
+            throw new UsernameNotFoundException("User not found with id: " + userId);
+        }
+        DeletionJob job = new DeletionJob();
+        job.setUserId(userId);
+        job.setCreatedDate(now);
+        job.setUpdatedDate(now);
+        DeletionJob saved = deletionJobRepository.save(job);
 
-        userRepository.deleteById(userId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidationBus.invalidateUser(userId);
+            }
+        });
+        return saved;
     }
 
 }
@@ -0,0 +1,44 @@
+package com.url.shortener.shortcode;
+
+// Same alphabet the original random generator used, so old and new codes look alike
+public final class Base62 {
+
+    static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    static final int BASE = 62;
+
+    private Base62() {
+    }
+
+    public static String encode(long value) {
+        return encode(value, 1);
+    }
+
+    // Left-pads with the zero digit up to minLength
+    public static String encode(long value, int minLength) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Cannot encode negative value: " + value);
+        }
+        char[] buffer = new char[11];
+        int position = buffer.length;
+        do {
+            buffer[--position] = ALPHABET.charAt((int) (value % BASE));
+            value /= BASE;
+        } while (value > 0);
+        while (buffer.length - position < minLength) {
+            buffer[--position] = ALPHABET.charAt(0);
+        }
+        return new String(buffer, position, buffer.length - position);
+    }
+
+    public static long decode(String code) {
+        long value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            int digit = ALPHABET.indexOf(code.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not a base62 code: " + code);
+            }
+            value = Math.multiplyExact(value, BASE) + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,100 @@
+package com.url.shortener.shortcode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size Bloom filter over strings. Bits live in an AtomicLongArray so adds from
+// request threads never take a lock; the k probe positions come from two 64-bit hashes
+// combined as h1 + i * h2 (Kirsch-Mitzenmacher).
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong insertions = new AtomicLong();
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.words = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+        this.bitCount = (long) words.length() << 6;
+        this.hashCount = hashCount;
+    }
+
+    // Sizes the filter for the wanted false-positive rate, shrinking it to maxBytes if needed
+    static BloomFilter create(long expectedInsertions, double falsePositiveRate, long maxBytes) {
+        long n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = Math.max(64, Math.min(bits, Math.min(maxBytes, Long.MAX_VALUE / 8) * 8));
+        int hashes = (int) Math.max(1, Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, Math.min(hashes, 16));
+    }
+
+    void put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            changed |= setBit(Long.remainderUnsigned(hash1 + i * hash2, bitCount));
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // (1 - e^(-kn/m))^k for the values inserted so far
+    double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitCount), hashCount);
+    }
+
+    long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    long insertions() {
+        return insertions.get();
+    }
+
+    private boolean setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long word = words.get(index);
+            if ((word & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, word, word | mask)) {
+                return true;
+            }
+        }
+    }
+
+    // FNV-1a over the UTF-8 bytes, finished with the murmur3 mixer to spread short inputs
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB53A4A8A3FE5L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
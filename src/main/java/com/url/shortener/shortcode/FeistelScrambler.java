@@ -0,0 +1,79 @@
+package com.url.shortener.shortcode;
+
+// Keyed bijection on [0, 62^7). A 4-round balanced Feistel network permutes 42-bit
+// values; cycle-walking re-applies it until the result falls inside the domain, which
+// keeps the mapping one-to-one. Sequential ids come out as unrelated-looking codes.
+public final class FeistelScrambler {
+
+    public static final int CODE_LENGTH = 7;
+    public static final long DOMAIN = 3_521_614_606_208L; // 62^7
+
+    private static final int HALF_BITS = 21;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final long[] roundKeys = new long[ROUNDS];
+
+    public FeistelScrambler(long key) {
+        long state = key;
+        for (int i = 0; i < ROUNDS; i++) {
+            state = mix(state + 0x9E3779B97F4A7C15L);
+            roundKeys[i] = state;
+        }
+    }
+
+    public long scramble(long value) {
+        if (value < 0 || value >= DOMAIN) {
+            throw new IllegalArgumentException("Value outside scramble domain: " + value);
+        }
+        long result = value;
+        do {
+            result = permute(result);
+        } while (result >= DOMAIN);
+        return result;
+    }
+
+    public long unscramble(long value) {
+        if (value < 0 || value >= DOMAIN) {
+            throw new IllegalArgumentException("Value outside scramble domain: " + value);
+        }
+        long result = value;
+        do {
+            result = invert(result);
+        } while (result >= DOMAIN);
+        return result;
+    }
+
+    private long permute(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ round(right, i);
+            left = right;
+            right = next;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private long invert(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (int i = ROUNDS - 1; i >= 0; i--) {
+            long previous = right ^ round(left, i);
+            right = left;
+            left = previous;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private long round(long half, int index) {
+        return mix(half ^ roundKeys[index]) & HALF_MASK;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
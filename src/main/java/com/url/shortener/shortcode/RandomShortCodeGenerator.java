@@ -0,0 +1,25 @@
+package com.url.shortener.shortcode;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// The original 8-char random scheme. Nothing prevents a collision here other than the
+// unique constraint on url_mapping.short_url, so prefer the sequence generator.
+@Component
+@ConditionalOnProperty(name = "shortcode.strategy", havingValue = "random")
+public class RandomShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final int LENGTH = 8;
+
+    @Override
+    public String nextCode() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder shortUrl = new StringBuilder(LENGTH);
+        for (int i = 0; i < LENGTH; i++) {
+            shortUrl.append(Base62.ALPHABET.charAt(random.nextInt(Base62.BASE)));
+        }
+        return shortUrl.toString();
+    }
+}
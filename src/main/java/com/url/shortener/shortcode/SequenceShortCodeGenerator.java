@@ -0,0 +1,99 @@
+package com.url.shortener.shortcode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Default generator. Leases blocks of ids from a database sequence and hands them out
+// from memory, so every node produces unique ids without coordination. Ids are
+// base62-encoded, either plainly (1-7 chars) or scrambled into exactly 7 chars; both
+// forms are shorter than the 8-char codes the old random generator produced.
+// The sequence is set up on the first lease rather than at startup, so the context
+// can be built without a database (AOT processing, the AppCDS training run).
+// The scramble key has no default: anyone who knew it could turn codes back into
+// sequential ids, so startup fails while scrambling is on and the key is unset.
+@Component
+@ConditionalOnProperty(name = "shortcode.strategy", havingValue = "sequence", matchIfMissing = true)
+public class SequenceShortCodeGenerator implements ShortCodeGenerator {
+
+    static final String SEQUENCE_NAME = "short_code_seq";
+
+    private record Block(AtomicLong next, long end) {
+    }
+
+    // Leasing queries the database, so a lock rather than synchronized keeps virtual
+    // threads from pinning their carrier while they wait
+    private final ReentrantLock leaseLock = new ReentrantLock();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FeistelScrambler scrambler;
+    private final long configuredBlockSize;
+    // Read from the sequence on the first lease, guarded by leaseLock
+    private long blockSize;
+    private volatile Block block;
+
+    public SequenceShortCodeGenerator(JdbcTemplate jdbcTemplate,
+                                      @Value("${shortcode.block-size}") long configuredBlockSize,
+                                      @Value("${shortcode.scramble}") boolean scramble,
+                                      @Value("${shortcode.scramble-key}") String scrambleKey) {
+        if (scramble && !StringUtils.hasText(scrambleKey)) {
+            throw new IllegalStateException("shortcode.scramble-key (SHORTCODE_SCRAMBLE_KEY) must be set when shortcode.scramble is enabled");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.scrambler = scramble ? new FeistelScrambler(Long.parseLong(scrambleKey.trim())) : null;
+        this.configuredBlockSize = configuredBlockSize;
+    }
+
+    @Override
+    public String nextCode() {
+        long id = nextId();
+        if (scrambler == null) {
+            return Base62.encode(id);
+        }
+        if (id >= FeistelScrambler.DOMAIN) {
+            throw new IllegalStateException("Short code space exhausted");
+        }
+        return Base62.encode(scrambler.scramble(id), FeistelScrambler.CODE_LENGTH);
+    }
+
+    long nextId() {
+        while (true) {
+            Block current = block;
+            if (current != null) {
+                long id = current.next().getAndIncrement();
+                if (id < current.end()) {
+                    return id;
+                }
+            }
+            leaseLock.lock();
+            try {
+                if (block == current) {
+                    block = leaseBlock();
+                }
+            } finally {
+                leaseLock.unlock();
+            }
+        }
+    }
+
+    private Block leaseBlock() {
+        if (blockSize == 0) {
+            blockSize = prepareSequence();
+        }
+        long start = jdbcTemplate.queryForObject("select nextval('" + SEQUENCE_NAME + "')", Long.class);
+        return new Block(new AtomicLong(start), start + blockSize);
+    }
+
+    // The increment is fixed when the sequence is created; always lease blocks of that size
+    private long prepareSequence() {
+        jdbcTemplate.execute("create sequence if not exists " + SEQUENCE_NAME
+                + " start with 1 increment by " + configuredBlockSize);
+        return jdbcTemplate.queryForObject(
+                "select increment_by from pg_sequences where sequencename = ?", Long.class, SEQUENCE_NAME);
+    }
+}
@@ -0,0 +1,222 @@
+package com.url.shortener.shortcode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bloom filter of every issued short code, so redirects for codes that were never
+// created (scanners, typos) can 404 without touching the cache or the database.
+//   - built on startup and rebuilt every rebuild-ms by paging through url_mapping by id;
+//     the rebuild is what forgets deleted codes
+//   - codes created on this node are added immediately; codes created on other nodes
+//     are picked up by the tail refresh every refresh-ms, which pages by created_date
+//     and rescans tail-overlap-ms behind the newest row seen. Ids cannot be used for
+//     this: each node reserves them in blocks, so an idle node commits ids far below
+//     the ones other nodes are writing. The overlap has to cover the time from
+//     created_date to commit plus the clock skew between nodes.
+// Until the first build finishes every code is reported as possibly present.
+@Slf4j
+@Component
+public class ShortCodeFilter {
+
+    // Size for twice the current row count so the filter stays accurate until the next rebuild
+    private static final int GROWTH_FACTOR = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final double falsePositiveRate;
+    private final long minExpectedCodes;
+    private final long maxBytes;
+    private final int pageSize;
+    private final long tailOverlapMs;
+
+    // Rebuild and tail refresh both run on the scheduler, which may use several threads
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile BloomFilter current;
+    // Non-null while a rebuild is streaming, so concurrent adds reach the new filter too
+    private volatile BloomFilter rebuilding;
+    // Newest created_date read by a tail refresh, or the start of the last rebuild
+    private LocalDateTime lastSeenCreated;
+
+    private final Counter rejected;
+    private final Counter falsePositives;
+
+    public ShortCodeFilter(JdbcTemplate jdbcTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${redirect.bloom.enabled}") boolean enabled,
+                           @Value("${redirect.bloom.false-positive-rate}") double falsePositiveRate,
+                           @Value("${redirect.bloom.min-expected-codes}") long minExpectedCodes,
+                           @Value("${redirect.bloom.max-memory-bytes}") long maxBytes,
+                           @Value("${redirect.bloom.page-size}") int pageSize,
+                           @Value("${redirect.bloom.tail-overlap-ms}") long tailOverlapMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.minExpectedCodes = minExpectedCodes;
+        this.maxBytes = maxBytes;
+        this.pageSize = pageSize;
+        this.tailOverlapMs = tailOverlapMs;
+
+        this.rejected = Counter.builder("redirect.bloom.rejected").register(meterRegistry);
+        this.falsePositives = Counter.builder("redirect.bloom.false.positives").register(meterRegistry);
+        Gauge.builder("redirect.bloom.configured.fpp", () -> falsePositiveRate).register(meterRegistry);
+        Gauge.builder("redirect.bloom.expected.fpp", this, f -> f.current == null ? 0 : f.current.expectedFalsePositiveRate())
+                .register(meterRegistry);
+        Gauge.builder("redirect.bloom.memory", this, f -> f.current == null ? 0 : f.current.sizeInBytes())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("redirect.bloom.codes", this, f -> f.current == null ? 0 : f.current.insertions())
+                .register(meterRegistry);
+    }
+
+    // False means the code was definitely never issued (or deleted before the last rebuild)
+    public boolean mightContain(String shortUrl) {
+        BloomFilter filter = current;
+        if (!enabled || filter == null || filter.mightContain(shortUrl)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void add(String shortUrl) {
+//        Read rebuilding before current: the swap publishes current first, then clears rebuilding
+        BloomFilter next = rebuilding;
+        BloomFilter filter = current;
+        if (filter != null) {
+            filter.put(shortUrl);
+        }
+        if (next != null) {
+            next.put(shortUrl);
+        }
+    }
+
+    // The filter let a code through but the lookup found nothing. Deleted codes count
+    // here as well until the next rebuild.
+    public void recordFalsePositive() {
+        if (enabled && current != null) {
+            falsePositives.increment();
+        }
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${redirect.bloom.rebuild-ms}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        refreshLock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            LocalDateTime startedAt = LocalDateTime.now();
+            Long rows = jdbcTemplate.queryForObject("select count(*) from url_mapping where deleted_at is null", Long.class);
+            BloomFilter filter = BloomFilter.create(Math.max(minExpectedCodes, rows * GROWTH_FACTOR), falsePositiveRate, maxBytes);
+            rebuilding = filter;
+            load(filter);
+            current = filter;
+            rebuilding = null;
+//            Rows committed while the rebuild was paging are within the tail's overlap
+            lastSeenCreated = startedAt;
+            log.info("Built short code filter with {} codes in {} ms ({} bytes, expected fpp {})",
+                    filter.insertions(), System.currentTimeMillis() - started, filter.sizeInBytes(),
+                    String.format("%.5f", filter.expectedFalsePositiveRate()));
+        } catch (DataAccessException e) {
+            rebuilding = null;
+            log.warn("Failed to build short code filter, keeping the previous one", e);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${redirect.bloom.refresh-ms}")
+    public void refreshTail() {
+        if (!enabled || current == null || !refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            LocalDateTime newest = loadCreatedSince(current, lastSeenCreated.minusNanos(tailOverlapMs * 1_000_000));
+            if (newest != null && newest.isAfter(lastSeenCreated)) {
+                lastSeenCreated = newest;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to refresh short code filter", e);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // Streams every live code into the filter in keyset pages by id
+    private void load(BloomFilter filter) {
+        long lastId = 0;
+        while (true) {
+            AtomicLong pageLastId = new AtomicLong(lastId);
+            int rows = jdbcTemplate.query(
+                    "select id, short_url from url_mapping where id > ? and deleted_at is null order by id limit ?",
+                    rs -> {
+                        int count = 0;
+                        while (rs.next()) {
+                            pageLastId.set(rs.getLong(1));
+                            String shortUrl = rs.getString(2);
+                            if (shortUrl != null) {
+                                filter.put(shortUrl);
+                            }
+                            count++;
+                        }
+                        return count;
+                    },
+                    lastId, pageSize);
+            lastId = pageLastId.get();
+            if (rows < pageSize) {
+                return;
+            }
+        }
+    }
+
+    // Streams codes created at or after since into the filter in keyset pages by
+    // (created_date, id); returns the newest created_date read, or null if there was none
+    private LocalDateTime loadCreatedSince(BloomFilter filter, LocalDateTime since) {
+        Timestamp lastCreated = Timestamp.valueOf(since);
+        long lastId = 0;
+        LocalDateTime newest = null;
+        while (true) {
+            AtomicReference<Timestamp> pageLastCreated = new AtomicReference<>(lastCreated);
+            AtomicLong pageLastId = new AtomicLong(lastId);
+            int rows = jdbcTemplate.query(
+                    "select created_date, id, short_url from url_mapping where (created_date, id) > (?, ?) " +
+                    "and deleted_at is null order by created_date, id limit ?",
+                    rs -> {
+                        int count = 0;
+                        while (rs.next()) {
+                            pageLastCreated.set(rs.getTimestamp(1));
+                            pageLastId.set(rs.getLong(2));
+                            String shortUrl = rs.getString(3);
+                            if (shortUrl != null) {
+                                filter.put(shortUrl);
+                            }
+                            count++;
+                        }
+                        return count;
+                    },
+                    lastCreated, lastId, pageSize);
+            if (rows > 0) {
+                lastCreated = pageLastCreated.get();
+                lastId = pageLastId.get();
+                newest = lastCreated.toLocalDateTime();
+            }
+            if (rows < pageSize) {
+                return newest;
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.url.shortener.shortcode;
+
+public interface ShortCodeGenerator {
+
+    // Returns a code that has never been handed out before
+    String nextCode();
+}
@@ -0,0 +1,69 @@
+package com.url.shortener.warmup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// The hot set as written to disk, gzip-compressed. Layout, all big-endian:
+//   header  magic:int version:short createdMillis:long entries:int
+//   entries urlMappingId:long shortUrl:utf originalUrl:utf score:double, hottest first
+// The score is the link's decayed click count when the snapshot was taken.
+// Written to a temp file, forced to disk and renamed into place, so a reader sees
+// either the previous snapshot or the new one.
+record HotSetSnapshot(long createdMillis, List<Entry> entries) {
+
+    static final int MAGIC = 0x484F5453;
+    static final short VERSION = 2;
+
+    record Entry(long urlMappingId, String shortUrl, String originalUrl, double score) {
+    }
+
+    void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+             GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(stream, 1 << 16));
+             DataOutputStream out = new DataOutputStream(gzip)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(createdMillis);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeLong(entry.urlMappingId());
+                out.writeUTF(entry.shortUrl());
+                out.writeUTF(entry.originalUrl());
+                out.writeDouble(entry.score());
+            }
+            gzip.finish();
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static HotSetSnapshot read(Path file) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(stream, 1 << 16)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("Not a hot set snapshot: " + file);
+            }
+            long createdMillis = in.readLong();
+            int size = in.readInt();
+            List<Entry> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                entries.add(new Entry(in.readLong(), in.readUTF(), in.readUTF(), in.readDouble()));
+            }
+            return new HotSetSnapshot(createdMillis, entries);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.url.shortener.warmup;
+
+import com.url.shortener.click.ClickCounterRegistry;
+import com.url.shortener.dtos.RedirectTarget;
+import com.url.shortener.service.ShortUrlCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Keeps replicas from starting with a cold redirect cache after a deploy.
+//   - every node ranks links by the clicks it has served itself, as reported by the
+//     ClickCounterRegistry flushes, with an exponential decay over window-days; the
+//     load balancer spreads traffic, so each node's ranking stands for the fleet's
+//   - every snapshot-ms the size best-ranked links are written to a local snapshot
+//     file; the only query is a primary key lookup of those links
+//   - on startup, before the web server takes traffic, the snapshot is loaded into
+//     ShortUrlCache and seeds the ranking; without a usable one (missing, unreadable
+//     or older than max-age-ms) the ranking is queried from the click tables once
+// Snapshot entries are checked against url_mapping in a single query before use, so a
+// link deleted after the snapshot was taken is not served from the warmed cache.
+@Slf4j
+@Component
+public class HotSetWarmer implements SmartLifecycle {
+
+    private static final String HOT_FROM_ROLLUPS =
+            "select u.id, u.short_url, u.original_url, c.clicks from url_mapping u join " +
+            "(select url_mapping_id, sum(click_count) as clicks from click_rollup " +
+            "where click_day >= ? group by url_mapping_id) c on c.url_mapping_id = u.id " +
+            "where u.deleted_at is null and u.short_url is not null " +
+            "order by c.clicks desc, u.click_count desc limit ?";
+
+    private static final String HOT_FROM_EVENTS =
+            "select u.id, u.short_url, u.original_url, c.clicks from url_mapping u join " +
+            "(select url_mapping_id, count(*) as clicks from click_event " +
+            "where click_date >= ? group by url_mapping_id) c on c.url_mapping_id = u.id " +
+            "where u.deleted_at is null and u.short_url is not null " +
+            "order by c.clicks desc, u.click_count desc limit ?";
+
+    private static final String LIVE_BY_ID =
+            "select id, short_url, original_url from url_mapping " +
+            "where id = any(?) and deleted_at is null and short_url is not null";
+
+    // Links ranked beyond size are kept up to this factor, so one that is climbing is not forgotten
+    private static final int RANKED_FACTOR = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShortUrlCache shortUrlCache;
+    private final boolean enabled;
+    private final boolean rollupsEnabled;
+    private final int size;
+    private final int windowDays;
+    private final long windowMs;
+    private final long maxAgeMs;
+    private final Path file;
+    private volatile boolean running;
+
+    // Clicks flushed since the last ranking, per link
+    private final ConcurrentHashMap<Long, Long> recentClicks = new ConcurrentHashMap<>();
+    // Decayed click counts, guarded by rankLock
+    private final Map<Long, Double> scores = new HashMap<>();
+    private final ReentrantLock rankLock = new ReentrantLock();
+    private long decayedAt = System.currentTimeMillis();
+
+    public HotSetWarmer(JdbcTemplate jdbcTemplate,
+                        ShortUrlCache shortUrlCache,
+                        ClickCounterRegistry clickCounters,
+                        @Value("${redirect.warmup.enabled}") boolean enabled,
+                        @Value("${analytics.rollups.enabled}") boolean rollupsEnabled,
+                        @Value("${redirect.warmup.size}") int size,
+                        @Value("${redirect.warmup.window-days}") int windowDays,
+                        @Value("${redirect.warmup.max-age-ms}") long maxAgeMs,
+                        @Value("${redirect.warmup.file}") String file) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shortUrlCache = shortUrlCache;
+        this.enabled = enabled;
+        this.rollupsEnabled = rollupsEnabled;
+        this.size = size;
+        this.windowDays = windowDays;
+        this.windowMs = TimeUnit.DAYS.toMillis(Math.max(1, windowDays));
+        this.maxAgeMs = maxAgeMs;
+        this.file = Path.of(file);
+        if (enabled) {
+            clickCounters.subscribe((urlMappingId, clicks) -> recentClicks.merge(urlMappingId, clicks, Long::sum));
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long version = shortUrlCache.version();
+        try {
+            HotSetSnapshot snapshot = readSnapshot();
+            List<HotSetSnapshot.Entry> entries;
+            String source = "snapshot";
+            if (snapshot == null) {
+                entries = queryHotSet();
+                seedScores(entries, 1.0);
+                source = "database";
+            } else {
+                entries = live(snapshot.entries());
+                seedScores(entries, decay(started - snapshot.createdMillis()));
+            }
+            for (HotSetSnapshot.Entry entry : entries) {
+                shortUrlCache.put(entry.shortUrl(), Optional.of(new RedirectTarget(entry.urlMappingId(), entry.originalUrl())), version);
+            }
+            log.info("Warmed redirect cache with {} links from the {} in {} ms",
+                    entries.size(), source, System.currentTimeMillis() - started);
+        } catch (DataAccessException e) {
+//            A cold cache only costs latency; it must not keep the instance from starting
+            log.warn("Failed to warm the redirect cache, starting cold", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before the web server accepts the first redirect
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+
+    @Scheduled(initialDelayString = "${redirect.warmup.snapshot-ms}", fixedDelayString = "${redirect.warmup.snapshot-ms}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<HotSetSnapshot.Entry> entries = resolve(rank());
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            new HotSetSnapshot(System.currentTimeMillis(), entries).write(file);
+            log.debug("Wrote hot set snapshot with {} links to {}", entries.size(), file);
+        } catch (IOException | DataAccessException e) {
+            log.warn("Failed to write hot set snapshot {}", file, e);
+        }
+    }
+
+    private double decay(long elapsedMs) {
+        return Math.exp(-(double) Math.max(0, elapsedMs) / windowMs);
+    }
+
+    private void seedScores(List<HotSetSnapshot.Entry> entries, double decay) {
+        rankLock.lock();
+        try {
+            for (HotSetSnapshot.Entry entry : entries) {
+                scores.merge(entry.urlMappingId(), entry.score() * decay, Double::sum);
+            }
+        } finally {
+            rankLock.unlock();
+        }
+    }
+
+    // Decays the scores, adds the clicks flushed since the last call and returns the
+    // size best-ranked links with their scores, hottest first
+    private List<Map.Entry<Long, Double>> rank() {
+        rankLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            double decay = decay(now - decayedAt);
+            decayedAt = now;
+            scores.replaceAll((id, score) -> score * decay);
+            for (Long id : recentClicks.keySet()) {
+                Long clicks = recentClicks.remove(id);
+                if (clicks != null) {
+                    scores.merge(id, clicks.doubleValue(), Double::sum);
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet().size());
+            scores.forEach((id, score) -> ranked.add(Map.entry(id, score)));
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder()));
+            for (int i = size * RANKED_FACTOR; i < ranked.size(); i++) {
+                scores.remove(ranked.get(i).getKey());
+            }
+            return ranked.subList(0, Math.min(size, ranked.size()));
+        } finally {
+            rankLock.unlock();
+        }
+    }
+
+    // Looks up the ranked links by id; deleted ones are dropped from the ranking
+    private List<HotSetSnapshot.Entry> resolve(List<Map.Entry<Long, Double>> ranked) {
+        if (ranked.isEmpty()) {
+            return List.of();
+        }
+        Long[] ids = ranked.stream().map(Map.Entry::getKey).toArray(Long[]::new);
+        Map<Long, RedirectTarget> targets = new HashMap<>();
+        Map<Long, String> shortUrls = new HashMap<>();
+        jdbcTemplate.query(LIVE_BY_ID,
+                ps -> {
+                    Array array = ps.getConnection().createArrayOf("bigint", ids);
+                    ps.setArray(1, array);
+                },
+                rs -> {
+                    targets.put(rs.getLong(1), new RedirectTarget(rs.getLong(1), rs.getString(3)));
+                    shortUrls.put(rs.getLong(1), rs.getString(2));
+                });
+
+        List<HotSetSnapshot.Entry> entries = new ArrayList<>(targets.size());
+        List<Long> deleted = new ArrayList<>();
+        for (Map.Entry<Long, Double> link : ranked) {
+            RedirectTarget target = targets.get(link.getKey());
+            if (target == null) {
+                deleted.add(link.getKey());
+            } else {
+                entries.add(new HotSetSnapshot.Entry(link.getKey(), shortUrls.get(link.getKey()), target.originalUrl(), link.getValue()));
+            }
+        }
+        if (!deleted.isEmpty()) {
+            rankLock.lock();
+            try {
+                deleted.forEach(scores::remove);
+            } finally {
+                rankLock.unlock();
+            }
+        }
+        return entries;
+    }
+
+    // Startup fallback without a snapshot: the clicks over the last window-days
+    private List<HotSetSnapshot.Entry> queryHotSet() {
+        LocalDate since = LocalDate.now().minusDays(windowDays);
+        return jdbcTemplate.query(rollupsEnabled ? HOT_FROM_ROLLUPS : HOT_FROM_EVENTS,
+                (rs, rowNum) -> new HotSetSnapshot.Entry(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getDouble(4)),
+                rollupsEnabled ? since : since.atStartOfDay(), size);
+    }
+
+    // The snapshot, or null if there is no usable one
+    private HotSetSnapshot readSnapshot() {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            HotSetSnapshot snapshot = HotSetSnapshot.read(file);
+            long age = System.currentTimeMillis() - snapshot.createdMillis();
+            if (age > maxAgeMs) {
+                log.info("Ignoring hot set snapshot {}, it is {} ms old", file, age);
+                return null;
+            }
+            return snapshot;
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable hot set snapshot {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private List<HotSetSnapshot.Entry> live(List<HotSetSnapshot.Entry> entries) {
+        if (entries.isEmpty()) {
+            return entries;
+        }
+        Long[] ids = entries.stream().map(HotSetSnapshot.Entry::urlMappingId).toArray(Long[]::new);
+        Set<Long> live = new HashSet<>(jdbcTemplate.query("select id from url_mapping where id = any(?) and deleted_at is null",
+                ps -> {
+                    Array array = ps.getConnection().createArrayOf("bigint", ids);
+                    ps.setArray(1, array);
+                },
+                (rs, rowNum) -> rs.getLong(1)));
+        return entries.stream().filter(entry -> live.contains(entry.urlMappingId())).toList();
+    }
+}
@@ -0,0 +1,125 @@
+package com.url.shortener.archive;
+
+import com.url.shortener.click.ClickRollupReconciler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Compaction against a mocked url_mapping: the links it returns are the ones still there
+class ClickArchiverTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    @TempDir
+    Path dir;
+
+    private JdbcTemplate jdbcTemplate;
+    private ClickArchive archive;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.getDataSource()).thenReturn(mock(DataSource.class));
+        archive = new ClickArchive(true, dir.toString());
+        archive.load();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rewritesSegmentsWithoutPurgedLinks() throws IOException {
+        ClickSegment segment = writeSegment(DAY);
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(List.of(1L, 3L));
+
+        archiver(0).compactSegments();
+
+        ClickSegment compacted = archive.segments().get(0);
+        assertThat(compacted.path()).isEqualTo(segment.path());
+        assertThat(compacted.urlMappingIds()).containsExactly(1L, 3L);
+        assertThat(compacted.clicks()).isEqualTo(3);
+        assertThat(compacted.maxEventId()).isEqualTo(segment.maxEventId());
+        assertThat(archive.countDaily(List.of(1L, 2L, 3L), DAY.atStartOfDay(), DAY.atTime(23, 59))).containsEntry(DAY, 3L);
+//        The old mapping stays readable for queries that still hold it
+        assertThat(segment.count(2, 0, 86_400_000)).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void leavesSegmentsWithOnlyLiveLinksAlone() throws IOException {
+        ClickSegment segment = writeSegment(DAY);
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(List.of(1L, 2L, 3L));
+
+        archiver(0).compactSegments();
+
+        assertThat(archive.segments()).containsExactly(segment);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deletesSegmentsWhoseLinksAreAllPurged() throws IOException {
+        ClickSegment segment = writeSegment(DAY);
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        archiver(0).compactSegments();
+
+        assertThat(archive.segments()).isEmpty();
+        assertThat(archive.hotFrom()).isEmpty();
+        assertThat(Files.exists(segment.path())).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deletesSegmentsOlderThanExpiryDays() throws IOException {
+        LocalDate today = LocalDate.now();
+        ClickSegment expired = writeSegment(today.minusDays(400));
+        ClickSegment kept = writeSegment(today.minusDays(100));
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(List.of(1L, 2L, 3L));
+
+        archiver(365).compactSegments();
+
+        assertThat(archive.segments()).containsExactly(kept);
+        assertThat(Files.exists(expired.path())).isFalse();
+    }
+
+    private ClickArchiver archiver(int expiryDays) {
+        return new ClickArchiver(archive, mock(ClickRollupReconciler.class), jdbcTemplate,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 30, 1000, 1000, expiryDays);
+    }
+
+    // Links 1, 2 and 3 with one, two and two clicks
+    private ClickSegment writeSegment(LocalDate day) throws IOException {
+        Path path = ClickArchive.segmentPath(dir, day, 42);
+        try (ClickSegmentWriter writer = new ClickSegmentWriter(path, day)) {
+            writer.add(1, 1_000);
+            writer.add(2, 2_000);
+            writer.add(2, 3_000);
+            writer.add(3, 4_000);
+            writer.add(3, 5_000);
+            writer.finish(42);
+        }
+        ClickSegment segment = ClickSegment.open(path);
+        archive.publish(segment);
+        return segment;
+    }
+}
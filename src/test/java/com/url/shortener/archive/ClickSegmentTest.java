@@ -0,0 +1,139 @@
+package com.url.shortener.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClickSegmentTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        Path path = dir.resolve("2024-03-15.seg");
+        try (ClickSegmentWriter writer = new ClickSegmentWriter(path, DAY)) {
+            writer.add(3, 1_000);
+            writer.add(3, 1_000);
+            writer.add(3, 60_000);
+            writer.add(7, 0);
+            writer.add(42, MILLIS_PER_DAY - 1);
+            assertThat(writer.clicks()).isEqualTo(5);
+            writer.finish(999);
+        }
+
+        ClickSegment segment = ClickSegment.open(path);
+        assertThat(segment.day()).isEqualTo(DAY);
+        assertThat(segment.maxEventId()).isEqualTo(999);
+        assertThat(segment.clicks()).isEqualTo(5);
+
+        assertThat(segment.count(3, 0, MILLIS_PER_DAY)).isEqualTo(3);
+        assertThat(segment.count(3, 1_000, 1_001)).isEqualTo(2);
+        assertThat(segment.count(3, 1_001, 60_000)).isZero();
+        assertThat(segment.count(3, 1_001, 60_001)).isEqualTo(1);
+        assertThat(segment.count(7, 0, 1)).isEqualTo(1);
+        assertThat(segment.count(42, MILLIS_PER_DAY - 1, MILLIS_PER_DAY)).isEqualTo(1);
+        assertThat(segment.count(42, 0, MILLIS_PER_DAY - 1)).isZero();
+    }
+
+    @Test
+    void listsLinksAndDecodesTheirClicks() throws IOException {
+        Path path = dir.resolve("segment");
+        try (ClickSegmentWriter writer = new ClickSegmentWriter(path, DAY)) {
+            writer.add(3, 10);
+            writer.add(3, 10);
+            writer.add(3, 500);
+            writer.add(9, 7);
+            writer.finish(1);
+        }
+
+        ClickSegment segment = ClickSegment.open(path);
+        assertThat(segment.urlMappingIds()).containsExactly(3L, 9L);
+        assertThat(segment.clickTimes(3)).containsExactly(10L, 10L, 500L);
+        assertThat(segment.clickTimes(9)).containsExactly(7L);
+        assertThat(segment.clickTimes(4)).isEmpty();
+    }
+
+    @Test
+    void countsUnknownLinksAndEmptyRangesAsZero() throws IOException {
+        Path path = dir.resolve("segment");
+        try (ClickSegmentWriter writer = new ClickSegmentWriter(path, DAY)) {
+            writer.add(5, 100);
+            writer.finish(1);
+        }
+
+        ClickSegment segment = ClickSegment.open(path);
+        assertThat(segment.count(4, 0, MILLIS_PER_DAY)).isZero();
+        assertThat(segment.count(6, 0, MILLIS_PER_DAY)).isZero();
+        assertThat(segment.count(5, 200, 100)).isZero();
+    }
+
+    @Test
+    void matchesABruteForceCountOverManyLinks() throws IOException {
+        Random random = new Random(42);
+        long[][] clicks = new long[500][];
+        Path path = dir.resolve("segment");
+        try (ClickSegmentWriter writer = new ClickSegmentWriter(path, DAY)) {
+            for (int link = 0; link < clicks.length; link++) {
+//                Link 0 gets enough clicks to outgrow the writer's initial buffers
+                int count = link == 0 ? 50_000 : random.nextInt(20);
+                clicks[link] = random.longs(count, 0, MILLIS_PER_DAY).sorted().toArray();
+                for (long millis : clicks[link]) {
+                    writer.add(link * 10L, millis);
+                }
+            }
+            writer.finish(123_456);
+        }
+
+        ClickSegment segment = ClickSegment.open(path);
+        assertThat(segment.clicks()).isEqualTo(Arrays.stream(clicks).mapToLong(times -> times.length).sum());
+        for (int link = 0; link < clicks.length; link++) {
+            long from = random.nextLong(MILLIS_PER_DAY);
+            long to = from + random.nextLong(MILLIS_PER_DAY - from + 1);
+            long expected = Arrays.stream(clicks[link]).filter(millis -> millis >= from && millis < to).count();
+            assertThat(segment.count(link * 10L, from, to)).as("link %d", link).isEqualTo(expected);
+            assertThat(segment.count(link * 10L, 0, MILLIS_PER_DAY)).isEqualTo(clicks[link].length);
+        }
+    }
+
+    @Test
+    void rejectsClicksOutOfLinkOrder() throws IOException {
+        try (ClickSegmentWriter writer = new ClickSegmentWriter(dir.resolve("segment"), DAY)) {
+            writer.add(7, 0);
+            assertThatThrownBy(() -> writer.add(3, 0)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void neverOverwritesASegment() throws IOException {
+        Path path = dir.resolve("segment");
+        Files.writeString(path, "existing");
+        assertThatThrownBy(() -> new ClickSegmentWriter(path, DAY)).isInstanceOf(FileAlreadyExistsException.class);
+        assertThat(Files.readString(path)).isEqualTo("existing");
+    }
+
+    // A crash before finish leaves no footer, so the file is not taken for a segment
+    @Test
+    void refusesAnUnfinishedSegment() throws IOException {
+        Path path = dir.resolve("segment");
+        try (ClickSegmentWriter writer = new ClickSegmentWriter(path, DAY)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.add(1, i);
+            }
+        }
+        assertThatThrownBy(() -> ClickSegment.open(path)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,135 @@
+package com.url.shortener.click;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickRingBufferTest {
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        assertThat(new ClickRingBuffer(100).capacity()).isEqualTo(128);
+        assertThat(new ClickRingBuffer(128).capacity()).isEqualTo(128);
+        assertThat(new ClickRingBuffer(129).capacity()).isEqualTo(256);
+    }
+
+    @Test
+    void drainsInOfferOrder() {
+        ClickRingBuffer buffer = new ClickRingBuffer(16);
+        for (long id = 1; id <= 5; id++) {
+            assertThat(buffer.offer(id, 1000 + id)).isTrue();
+        }
+        assertThat(buffer.size()).isEqualTo(5);
+
+        List<long[]> drained = new ArrayList<>();
+        assertThat(buffer.drain((id, time) -> drained.add(new long[]{id, time}), 100)).isEqualTo(5);
+        assertThat(drained).extracting(click -> click[0]).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(drained).extracting(click -> click[1]).containsExactly(1001L, 1002L, 1003L, 1004L, 1005L);
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void rejectsOffersWhenFull() {
+        ClickRingBuffer buffer = new ClickRingBuffer(8);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            assertThat(buffer.offer(i, 0)).isTrue();
+        }
+        assertThat(buffer.offer(99, 0)).isFalse();
+
+        assertThat(buffer.drain((id, time) -> { }, 1)).isEqualTo(1);
+        assertThat(buffer.offer(99, 0)).isTrue();
+        assertThat(buffer.offer(100, 0)).isFalse();
+    }
+
+    @Test
+    void drainStopsAtLimitAndWhenEmpty() {
+        ClickRingBuffer buffer = new ClickRingBuffer(16);
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(i, 0);
+        }
+        assertThat(buffer.drain((id, time) -> { }, 4)).isEqualTo(4);
+        assertThat(buffer.size()).isEqualTo(6);
+        assertThat(buffer.drain((id, time) -> { }, 100)).isEqualTo(6);
+        assertThat(buffer.drain((id, time) -> { }, 100)).isZero();
+    }
+
+    @Test
+    void reusesSlotsOverManyLaps() {
+        ClickRingBuffer buffer = new ClickRingBuffer(4);
+        long next = 0;
+        long expected = 0;
+        for (int lap = 0; lap < 1000; lap++) {
+            for (int i = 0; i < 3; i++) {
+                assertThat(buffer.offer(next++, 0)).isTrue();
+            }
+            List<Long> drained = new ArrayList<>();
+            buffer.drain((id, time) -> drained.add(id), 3);
+            for (Long id : drained) {
+                assertThat(id).isEqualTo(expected++);
+            }
+        }
+        assertThat(expected).isEqualTo(next);
+    }
+
+    // Every offered click is drained exactly once with producers and consumers racing
+    @Test
+    void concurrentProducersAndConsumersLoseNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        ClickRingBuffer buffer = new ClickRingBuffer(1024);
+        ConcurrentHashMap<Long, Long> seen = new ConcurrentHashMap<>();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger drained = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers + 2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long base = (long) p * perProducer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i, base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < 2; c++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    while (drained.get() < producers * perProducer) {
+                        drained.addAndGet(buffer.drain((id, time) -> {
+                            if (id != time || seen.put(id, time) != null) {
+                                duplicates.incrementAndGet();
+                            }
+                        }, 64));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(duplicates.get()).isZero();
+        assertThat(seen).hasSize(producers * perProducer);
+        assertThat(buffer.size()).isZero();
+    }
+}
@@ -0,0 +1,165 @@
+package com.url.shortener.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.url.shortener.models.MailOutbox;
+import com.url.shortener.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Runs the dispatcher against an embedded SMTP server; the outbox table is a mock
+// handing out the rows a claim would lock.
+class MailDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long LEASE_MS = 120_000;
+    private static final long BACKOFF_MS = 5_000;
+    private static final long MAX_BACKOFF_MS = 600_000;
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private MailOutboxRepository mailOutboxRepository;
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        mailOutboxRepository = mock(MailOutboxRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void deliversClaimedMailAndDeletesIt() throws Exception {
+        MailOutbox welcome = mail(1L, "alice@example.com", "Welcome", 0);
+        MailOutbox otp = mail(2L, "bob@example.com", "Your code", 0);
+        when(mailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(welcome, otp));
+
+        LocalDateTime before = LocalDateTime.now();
+        assertThat(dispatcher(greenMail.getSmtp().getPort()).dispatchBatch()).isEqualTo(2);
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(2);
+        assertThat(received).extracting(MimeMessage::getSubject).containsExactlyInAnyOrder("Welcome", "Your code");
+        assertThat(received[0].getFrom()[0].toString()).isEqualTo("noreply@example.com");
+
+//        The claim counted the attempt and leased the rows
+        assertThat(welcome.getAttempts()).isEqualTo(1);
+        assertThat(welcome.getNextAttemptAt()).isAfterOrEqualTo(before.plusNanos(LEASE_MS * 1_000_000));
+        verify(mailOutboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(mailOutboxRepository).saveAll(List.of());
+    }
+
+    @Test
+    void claimsNothingWhenNoMailIsDue() {
+        when(mailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+
+        assertThat(dispatcher(greenMail.getSmtp().getPort()).dispatchBatch()).isZero();
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+        verify(mailOutboxRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void retriesWithGrowingBackoffWhileSmtpIsDown() throws IOException {
+        MailOutbox mail = mail(1L, "alice@example.com", "Welcome", 0);
+        when(mailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(mail));
+        MailDispatcher dispatcher = dispatcher(closedPort());
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatchBatch();
+        assertThat(mail.getStatus()).isEqualTo(MailOutbox.Status.PENDING);
+        assertThat(mail.getAttempts()).isEqualTo(1);
+        assertThat(mail.getLastError()).isNotBlank();
+        assertBackoff(mail, before, BACKOFF_MS);
+
+        before = LocalDateTime.now();
+        dispatcher.dispatchBatch();
+        assertThat(mail.getStatus()).isEqualTo(MailOutbox.Status.PENDING);
+        assertThat(mail.getAttempts()).isEqualTo(2);
+        assertBackoff(mail, before, 2 * BACKOFF_MS);
+
+        verify(mailOutboxRepository, never()).deleteAllByIdInBatch(any());
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+    }
+
+    @Test
+    void deliversOnRetryOnceSmtpIsBack() throws IOException {
+        MailOutbox mail = mail(1L, "alice@example.com", "Welcome", 0);
+        when(mailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(mail));
+
+        dispatcher(closedPort()).dispatchBatch();
+        dispatcher(greenMail.getSmtp().getPort()).dispatchBatch();
+
+        assertThat(mail.getAttempts()).isEqualTo(2);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        verify(mailOutboxRepository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    void abandonsMailAfterMaxAttempts() throws IOException {
+        MailOutbox mail = mail(1L, "alice@example.com", "Welcome", MAX_ATTEMPTS - 1);
+        when(mailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(mail));
+
+        dispatcher(closedPort()).dispatchBatch();
+
+        assertThat(mail.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(mail.getStatus()).isEqualTo(MailOutbox.Status.FAILED);
+        assertThat(mail.getLastError()).isNotBlank();
+        verify(mailOutboxRepository).saveAll(List.of(mail));
+        verify(mailOutboxRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    private MailDispatcher dispatcher(int smtpPort) {
+        JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost("127.0.0.1");
+        javaMailSender.setPort(smtpPort);
+        javaMailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        return new MailDispatcher(mailOutboxRepository, javaMailSender, transactionManager, new SimpleMeterRegistry(),
+                "noreply@example.com", 1, 50, 1000, LEASE_MS, MAX_ATTEMPTS, BACKOFF_MS, MAX_BACKOFF_MS);
+    }
+
+    // Backoff doubles per attempt and adds up to 20% jitter
+    private static void assertBackoff(MailOutbox mail, LocalDateTime before, long expectedMs) {
+        assertThat(mail.getNextAttemptAt())
+                .isAfterOrEqualTo(before.plusNanos(expectedMs * 1_000_000))
+                .isBefore(LocalDateTime.now().plusNanos((expectedMs + expectedMs / 5 + 1) * 1_000_000));
+    }
+
+    private static MailOutbox mail(Long id, String recipient, String subject, int attempts) {
+        MailOutbox mail = new MailOutbox();
+        mail.setId(id);
+        mail.setRecipient(recipient);
+        mail.setSubject(subject);
+        mail.setTextBody("Hello");
+        mail.setAttempts(attempts);
+        mail.setCreatedDate(LocalDateTime.now());
+        mail.setNextAttemptAt(LocalDateTime.now());
+        return mail;
+    }
+
+    // A port nothing listens on, so connecting fails straight away
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
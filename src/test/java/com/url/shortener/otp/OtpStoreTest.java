@@ -0,0 +1,114 @@
+package com.url.shortener.otp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Two replicas sharing one forgot_password table, with the reset flow moving between them
+class OtpStoreTest {
+
+    private static final long USER = 7L;
+
+    private final SharedTable table = new SharedTable();
+    private final AtomicInteger mailsSent = new AtomicInteger();
+    private OtpStore nodeA;
+    private OtpStore nodeB;
+
+    @BeforeEach
+    void setUp() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        nodeA = new OtpStore(Optional.of(table), transactionManager, new SimpleMeterRegistry(), 180_000, 64, 1000);
+        nodeB = new OtpStore(Optional.of(table), transactionManager, new SimpleMeterRegistry(), 180_000, 64, 1000);
+    }
+
+    @Test
+    void verifiesAndFindsOnAnotherNode() {
+        assertThat(nodeA.issue(USER, 123456, mailsSent::incrementAndGet)).isTrue();
+
+        assertThat(nodeB.verify(USER, 111111)).isEqualTo(OtpStore.Verification.INVALID);
+        assertThat(nodeB.verify(USER, 123456)).isEqualTo(OtpStore.Verification.VERIFIED);
+        assertThat(nodeA.find(USER)).get().extracting(OtpEntry::verified).isEqualTo(true);
+        assertThat(mailsSent.get()).isEqualTo(1);
+    }
+
+    @Test
+    void refusesASecondOtpIssuedOnAnotherNode() {
+        assertThat(nodeA.issue(USER, 123456, mailsSent::incrementAndGet)).isTrue();
+        assertThat(nodeB.issue(USER, 654321, mailsSent::incrementAndGet)).isFalse();
+
+        assertThat(nodeA.verify(USER, 123456)).isEqualTo(OtpStore.Verification.VERIFIED);
+        assertThat(mailsSent.get()).isEqualTo(1);
+    }
+
+    @Test
+    void removeOnAnotherNodeDeletesTheRow() {
+        nodeA.issue(USER, 123456, mailsSent::incrementAndGet);
+        nodeA.verify(USER, 123456);
+
+        nodeB.remove(USER);
+
+        assertThat(table.rows).isEmpty();
+        assertThat(nodeA.find(USER)).isEmpty();
+        assertThat(nodeA.verify(USER, 123456)).isEqualTo(OtpStore.Verification.INVALID);
+    }
+
+    @Test
+    void expiredOtpCanBeReissuedAnywhere() {
+        table.save(USER, new OtpEntry(123456, System.currentTimeMillis() - 1, false));
+
+        assertThat(nodeB.verify(USER, 123456)).isEqualTo(OtpStore.Verification.EXPIRED);
+        assertThat(nodeA.issue(USER, 654321, mailsSent::incrementAndGet)).isTrue();
+        assertThat(nodeB.verify(USER, 654321)).isEqualTo(OtpStore.Verification.VERIFIED);
+    }
+
+    private static final class SharedTable implements OtpPersistence {
+
+        final Map<Long, OtpEntry> rows = new ConcurrentHashMap<>();
+
+        @Override
+        public Optional<OtpEntry> load(Long userId) {
+            return Optional.ofNullable(rows.get(userId));
+        }
+
+        @Override
+        public void save(Long userId, OtpEntry entry) {
+            rows.put(userId, entry);
+        }
+
+        @Override
+        public void markVerified(Long userId) {
+            rows.computeIfPresent(userId, (id, entry) -> entry.markVerified());
+        }
+
+        @Override
+        public void delete(Long userId) {
+            rows.remove(userId);
+        }
+
+        @Override
+        public void deleteExpired(long nowMs) {
+            rows.values().removeIf(entry -> entry.isExpired(nowMs));
+        }
+
+        @Override
+        public Map<Long, OtpEntry> loadActive(long nowMs) {
+            return rows.entrySet().stream()
+                    .filter(row -> !row.getValue().isExpired(nowMs))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        }
+    }
+}
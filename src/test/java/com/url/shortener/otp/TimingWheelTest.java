@@ -0,0 +1,88 @@
+package com.url.shortener.otp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 8 buckets of 100 ms: one turn of the wheel is 800 ms
+class TimingWheelTest {
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(8, 100, 0);
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void firesOnTheTickOfTheDeadline() {
+        wheel.schedule("a", 250);
+
+        advanceTo(299);
+        assertThat(expired).isEmpty();
+        advanceTo(300);
+        assertThat(expired).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void keepsDeadlinesBeyondOneTurnUntilTheirOwnTurn() {
+        wheel.schedule("far", 1000);
+        wheel.schedule("near", 200);
+
+        for (long now = 100; now < 1000; now += 100) {
+            advanceTo(now);
+        }
+        assertThat(expired).containsExactly("near");
+        advanceTo(1000);
+        assertThat(expired).containsExactly("near", "far");
+    }
+
+    @Test
+    void rescheduleInTheSameBucketKeepsTheLaterDeadline() {
+        wheel.schedule("a", 300);
+        wheel.schedule("a", 1100);
+
+        advanceTo(300);
+        assertThat(expired).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+        advanceTo(1100);
+        assertThat(expired).containsExactly("a");
+    }
+
+    // The owner re-checks the key on expiry, so an older slot firing is harmless
+    @Test
+    void rescheduleInAnotherBucketFiresBothSlots() {
+        wheel.schedule("a", 300);
+        wheel.schedule("a", 500);
+
+        advanceTo(300);
+        assertThat(expired).containsExactly("a");
+        advanceTo(500);
+        assertThat(expired).containsExactly("a", "a");
+    }
+
+    @Test
+    void catchesUpAfterALongPause() {
+        wheel.schedule("a", 100);
+        wheel.schedule("b", 750);
+        wheel.schedule("c", 2500);
+        wheel.schedule("d", 20_000);
+
+        advanceTo(10_000);
+        assertThat(expired).containsExactlyInAnyOrder("a", "b", "c");
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    @Test
+    void visitsEachTickOnlyOnce() {
+        wheel.schedule("a", 300);
+        advanceTo(300);
+        advanceTo(300);
+        advanceTo(250);
+        assertThat(expired).containsExactly("a");
+    }
+
+    private void advanceTo(long nowMs) {
+        wheel.advance(nowMs, expired::add);
+    }
+}
@@ -0,0 +1,109 @@
+package com.url.shortener.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// 10 requests per second: a burst of 10, then one every 100 ms
+class TokenBucketTest {
+
+    private static final long T0 = 1_000_000_000_000L;
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final RateLimitPolicy policy = RateLimitPolicy.parse("test", "10/1s");
+
+    @Test
+    void allowsAFullBurstThenRefusesWithTheWait() {
+        TokenBucket bucket = new TokenBucket(policy, T0);
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.tryAcquire(T0)).isZero();
+        }
+        assertThat(bucket.tryAcquire(T0)).isEqualTo(INTERVAL);
+        assertThat(bucket.tryAcquire(T0 + INTERVAL / 2)).isEqualTo(INTERVAL / 2);
+    }
+
+    @Test
+    void refillsOneRequestPerEmissionInterval() {
+        TokenBucket bucket = new TokenBucket(policy, T0);
+        for (int i = 0; i < 10; i++) {
+            bucket.tryAcquire(T0);
+        }
+        assertThat(bucket.tryAcquire(T0 + INTERVAL)).isZero();
+        assertThat(bucket.tryAcquire(T0 + INTERVAL)).isPositive();
+        assertThat(bucket.tryAcquire(T0 + 3 * INTERVAL)).isZero();
+        assertThat(bucket.tryAcquire(T0 + 3 * INTERVAL)).isZero();
+        assertThat(bucket.tryAcquire(T0 + 3 * INTERVAL)).isPositive();
+    }
+
+    // An idle bucket refills up to its capacity and no further
+    @Test
+    void idleTimeDoesNotBankMoreThanABurst() {
+        TokenBucket bucket = new TokenBucket(policy, T0);
+        long later = T0 + TimeUnit.HOURS.toNanos(1);
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.tryAcquire(later)).isZero();
+        }
+        assertThat(bucket.tryAcquire(later)).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void refusedRequestsDoNotConsumeTokens() {
+        TokenBucket bucket = new TokenBucket(policy, T0);
+        for (int i = 0; i < 10; i++) {
+            bucket.tryAcquire(T0);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertThat(bucket.tryAcquire(T0)).isPositive();
+        }
+        assertThat(bucket.tryAcquire(T0 + INTERVAL)).isZero();
+    }
+
+    @Test
+    void concurrentRequestsGetExactlyTheBurst() throws Exception {
+        TokenBucket bucket = new TokenBucket(RateLimitPolicy.parse("test", "1000/1m"), T0);
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        if (bucket.tryAcquire(T0) == 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(allowed.get()).isEqualTo(1000);
+    }
+
+    @Test
+    void parsesPolicies() {
+        assertThat(RateLimitPolicy.parse("otp", " 5 / 15m ")).isEqualTo(new RateLimitPolicy("otp", 5, Duration.ofMinutes(15)));
+        assertThat(policy.emissionIntervalNanos()).isEqualTo(INTERVAL);
+        assertThatThrownBy(() -> RateLimitPolicy.parse("bad", "100")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RateLimitPolicy.parse("bad", "0/1s")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RateLimitPolicy.parse("bad", "5/0s")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
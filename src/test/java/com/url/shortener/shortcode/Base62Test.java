@@ -0,0 +1,48 @@
+package com.url.shortener.shortcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Base62Test {
+
+    @Test
+    void encodesWithTheOriginalAlphabet() {
+        assertThat(Base62.encode(0)).isEqualTo("A");
+        assertThat(Base62.encode(61)).isEqualTo("9");
+        assertThat(Base62.encode(62)).isEqualTo("BA");
+        assertThat(Base62.encode(FeistelScrambler.DOMAIN - 1)).isEqualTo("9999999");
+        assertThat(Base62.encode(Long.MAX_VALUE)).hasSize(11);
+    }
+
+    @Test
+    void padsToMinLength() {
+        assertThat(Base62.encode(0, FeistelScrambler.CODE_LENGTH)).isEqualTo("AAAAAAA");
+        assertThat(Base62.encode(62, FeistelScrambler.CODE_LENGTH)).isEqualTo("AAAAABA");
+        assertThat(Base62.encode(FeistelScrambler.DOMAIN - 1, FeistelScrambler.CODE_LENGTH)).isEqualTo("9999999");
+    }
+
+    @Test
+    void decodeInvertsEncode() {
+        for (long value = 0; value < 10_000; value++) {
+            assertThat(Base62.decode(Base62.encode(value))).isEqualTo(value);
+            assertThat(Base62.decode(Base62.encode(value, FeistelScrambler.CODE_LENGTH))).isEqualTo(value);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong(Long.MAX_VALUE);
+            assertThat(Base62.decode(Base62.encode(value))).isEqualTo(value);
+        }
+        assertThat(Base62.decode(Base62.encode(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        assertThatThrownBy(() -> Base62.encode(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Base62.decode("abc-def")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Base62.decode("99999999999")).isInstanceOf(ArithmeticException.class);
+    }
+}
@@ -0,0 +1,93 @@
+package com.url.shortener.shortcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    private static final int CODES = 100_000;
+
+    @Test
+    void hasNoFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(CODES, 0.01, Long.MAX_VALUE);
+        for (long id = 0; id < CODES; id++) {
+            filter.put(Base62.encode(id));
+        }
+        for (long id = 0; id < CODES; id++) {
+            assertThat(filter.mightContain(Base62.encode(id))).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateMatchesTheSizing() {
+        BloomFilter filter = BloomFilter.create(CODES, 0.01, Long.MAX_VALUE);
+        for (long id = 0; id < CODES; id++) {
+            filter.put(Base62.encode(id, FeistelScrambler.CODE_LENGTH));
+        }
+
+        int falsePositives = 0;
+        int probes = 200_000;
+        for (long id = CODES; id < CODES + probes; id++) {
+            if (filter.mightContain(Base62.encode(id, FeistelScrambler.CODE_LENGTH))) {
+                falsePositives++;
+            }
+        }
+        double observed = (double) falsePositives / probes;
+        assertThat(observed).isLessThan(0.015);
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+    }
+
+    @Test
+    void shrinksToMaxBytes() {
+        BloomFilter filter = BloomFilter.create(10_000_000, 0.001, 1024);
+        assertThat(filter.sizeInBytes()).isEqualTo(1024);
+
+        BloomFilter unbounded = BloomFilter.create(10_000, 0.01, Long.MAX_VALUE);
+//        About 9.6 bits per element at 1%
+        assertThat(unbounded.sizeInBytes()).isBetween(11_000L, 13_000L);
+    }
+
+    @Test
+    void countsOnlyInsertionsThatChangeBits() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01, Long.MAX_VALUE);
+        filter.put("abc1234");
+        filter.put("abc1234");
+        filter.put("xyz9876");
+        assertThat(filter.insertions()).isEqualTo(2);
+        assertThat(filter.mightContain("nothere")).isFalse();
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws Exception {
+        BloomFilter filter = BloomFilter.create(CODES, 0.01, Long.MAX_VALUE);
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (long id = offset; id < CODES; id += threads) {
+                        filter.put(Base62.encode(id));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (long id = 0; id < CODES; id++) {
+            assertThat(filter.mightContain(Base62.encode(id))).isTrue();
+        }
+    }
+}
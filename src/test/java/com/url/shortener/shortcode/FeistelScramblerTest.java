@@ -0,0 +1,77 @@
+package com.url.shortener.shortcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeistelScramblerTest {
+
+    private final FeistelScrambler scrambler = new FeistelScrambler(0x5DEECE66DL);
+
+    @Test
+    void unscrambleInvertsScramble() {
+        for (long value = 0; value < 100_000; value++) {
+            assertThat(scrambler.unscramble(scrambler.scramble(value))).isEqualTo(value);
+        }
+        for (long value = FeistelScrambler.DOMAIN - 100_000; value < FeistelScrambler.DOMAIN; value++) {
+            assertThat(scrambler.unscramble(scrambler.scramble(value))).isEqualTo(value);
+        }
+    }
+
+    @Test
+    void scrambleIsOneToOne() {
+        Set<Long> seen = new HashSet<>();
+        for (long value = 0; value < 200_000; value++) {
+            assertThat(seen.add(scrambler.scramble(value))).as("duplicate code for %d", value).isTrue();
+        }
+    }
+
+    // 62^7 is below 2^42, so the cycle walk must bring every result back into the domain
+    @Test
+    void cycleWalkStaysBelowDomain() {
+        for (long value = 0; value < 200_000; value++) {
+            assertThat(scrambler.scramble(value)).isBetween(0L, FeistelScrambler.DOMAIN - 1);
+        }
+        for (long value = FeistelScrambler.DOMAIN - 200_000; value < FeistelScrambler.DOMAIN; value++) {
+            assertThat(scrambler.scramble(value)).isBetween(0L, FeistelScrambler.DOMAIN - 1);
+            assertThat(scrambler.unscramble(value)).isBetween(0L, FeistelScrambler.DOMAIN - 1);
+        }
+    }
+
+    @Test
+    void sequentialIdsDoNotComeOutSequential() {
+        long previous = scrambler.scramble(0);
+        int adjacent = 0;
+        for (long value = 1; value < 10_000; value++) {
+            long current = scrambler.scramble(value);
+            if (Math.abs(current - previous) < 1_000_000) {
+                adjacent++;
+            }
+            previous = current;
+        }
+        assertThat(adjacent).isLessThan(10);
+    }
+
+    @Test
+    void differentKeysGiveDifferentPermutations() {
+        FeistelScrambler other = new FeistelScrambler(0x5DEECE66EL);
+        int same = 0;
+        for (long value = 0; value < 1_000; value++) {
+            if (scrambler.scramble(value) == other.scramble(value)) {
+                same++;
+            }
+        }
+        assertThat(same).isLessThan(5);
+    }
+
+    @Test
+    void rejectsValuesOutsideDomain() {
+        assertThatThrownBy(() -> scrambler.scramble(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> scrambler.scramble(FeistelScrambler.DOMAIN)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> scrambler.unscramble(FeistelScrambler.DOMAIN)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,77 @@
+package com.url.shortener.shortcode;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The sequence is mocked: it was created with increment 100, and hands out 1, 101, 201, ...
+class SequenceShortCodeGeneratorTest {
+
+    private static final long BLOCK_SIZE = 100;
+    private static final String NEXTVAL = "select nextval('" + SequenceShortCodeGenerator.SEQUENCE_NAME + "')";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq(SequenceShortCodeGenerator.SEQUENCE_NAME)))
+                .thenReturn(BLOCK_SIZE);
+        when(jdbcTemplate.queryForObject(NEXTVAL, Long.class)).thenReturn(1L, 101L, 201L, 301L);
+    }
+
+    @Test
+    void handsOutBlocksFromMemory() {
+        SequenceShortCodeGenerator generator = new SequenceShortCodeGenerator(jdbcTemplate, 1000, false, "");
+
+        for (long expected = 1; expected <= 250; expected++) {
+            assertThat(generator.nextId()).isEqualTo(expected);
+        }
+//        The increment the sequence was created with wins over the configured block size
+        verify(jdbcTemplate, times(3)).queryForObject(NEXTVAL, Long.class);
+    }
+
+    @Test
+    void plainCodesAreBase62Ids() {
+        SequenceShortCodeGenerator generator = new SequenceShortCodeGenerator(jdbcTemplate, BLOCK_SIZE, false, "");
+
+        assertThat(generator.nextCode()).isEqualTo(Base62.encode(1));
+        assertThat(generator.nextCode()).isEqualTo(Base62.encode(2));
+    }
+
+    @Test
+    void scrambledCodesAreSevenCharsAndReversible() {
+        SequenceShortCodeGenerator generator = new SequenceShortCodeGenerator(jdbcTemplate, BLOCK_SIZE, true, " 42 ");
+        FeistelScrambler scrambler = new FeistelScrambler(42);
+
+        Set<String> codes = new HashSet<>();
+        for (long id = 1; id <= 300; id++) {
+            String code = generator.nextCode();
+            assertThat(code).hasSize(FeistelScrambler.CODE_LENGTH);
+            assertThat(scrambler.unscramble(Base62.decode(code))).isEqualTo(id);
+            codes.add(code);
+        }
+        assertThat(codes).hasSize(300);
+    }
+
+    @Test
+    void refusesToScrambleWithoutKey() {
+        assertThatThrownBy(() -> new SequenceShortCodeGenerator(jdbcTemplate, BLOCK_SIZE, true, ""))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("shortcode.scramble-key");
+        assertThatThrownBy(() -> new SequenceShortCodeGenerator(jdbcTemplate, BLOCK_SIZE, true, "  "))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}